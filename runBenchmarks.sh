@@ -0,0 +1,33 @@
+#!/bin/sh
+#
+# Compiles the JMH benchmarks in test/eu/artemis/demanes/test/benchmark with
+# the JMH annotation processor, and runs them with BenchmarkRunner.
+#
+# Build the workspace first, so that the classes of the bundles are in bin.
+# Then set:
+#   JMH_CLASSPATH      jmh-core, jmh-generator-annprocess, jopt-simple and
+#                      commons-math3
+#   DEMANES_CLASSPATH  the interface bundles, log4j and the OSGi and bnd
+#                      annotation jars of the -buildpath
+#
+# The arguments are passed to BenchmarkRunner: an optional regular
+# expression selecting the benchmarks, and the file for the JSON results.
+#
+#   ./runBenchmarks.sh 'SmallBundleBenchmark' small.json
+
+set -e
+
+if [ -z "$JMH_CLASSPATH" ] || [ -z "$DEMANES_CLASSPATH" ]; then
+	echo "Set JMH_CLASSPATH and DEMANES_CLASSPATH first" >&2
+	exit 1
+fi
+
+OUT=bin_benchmark
+CP="bin:$DEMANES_CLASSPATH:$JMH_CLASSPATH"
+
+rm -rf "$OUT"
+mkdir -p "$OUT"
+javac -processorpath "$JMH_CLASSPATH" -cp "$CP" -d "$OUT" \
+	test/eu/artemis/demanes/test/benchmark/*.java
+
+java -cp "$OUT:$CP" eu.artemis.demanes.test.benchmark.BenchmarkRunner "$@"
@@ -0,0 +1,145 @@
+/**
+ * File BufferDataOutput.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.datatypes;
+
+import java.io.DataOutput;
+import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
+
+/**
+ * BufferDataOutput
+ * 
+ * A DataOutput that writes straight into a ByteBuffer, so that the
+ * {@link BundleWireFormat} can encode into a buffer without an intermediate
+ * stream. Like the buffer itself it throws a
+ * {@link java.nio.BufferOverflowException} when the buffer is full.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+final class BufferDataOutput implements DataOutput {
+
+	private ByteBuffer buffer;
+
+	BufferDataOutput(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	void setBuffer(ByteBuffer buffer) {
+		this.buffer = buffer;
+	}
+
+	@Override
+	public void write(int b) {
+		this.buffer.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b) {
+		this.buffer.put(b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		this.buffer.put(b, off, len);
+	}
+
+	@Override
+	public void writeBoolean(boolean v) {
+		this.buffer.put(v ? (byte) 1 : (byte) 0);
+	}
+
+	@Override
+	public void writeByte(int v) {
+		this.buffer.put((byte) v);
+	}
+
+	@Override
+	public void writeShort(int v) {
+		this.buffer.putShort((short) v);
+	}
+
+	@Override
+	public void writeChar(int v) {
+		this.buffer.putChar((char) v);
+	}
+
+	@Override
+	public void writeInt(int v) {
+		this.buffer.putInt(v);
+	}
+
+	@Override
+	public void writeLong(long v) {
+		this.buffer.putLong(v);
+	}
+
+	@Override
+	public void writeFloat(float v) {
+		this.buffer.putFloat(v);
+	}
+
+	@Override
+	public void writeDouble(double v) {
+		this.buffer.putDouble(v);
+	}
+
+	@Override
+	public void writeBytes(String s) {
+		for (int i = 0; i < s.length(); i++)
+			this.buffer.put((byte) s.charAt(i));
+	}
+
+	@Override
+	public void writeChars(String s) {
+		for (int i = 0; i < s.length(); i++)
+			this.buffer.putChar(s.charAt(i));
+	}
+
+	@Override
+	public void writeUTF(String s) throws UTFDataFormatException {
+		// Modified UTF-8, as written by DataOutputStream
+		int length = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			length += (c >= 0x0001 && c <= 0x007F) ? 1 : (c > 0x07FF) ? 3 : 2;
+		}
+		if (length > 0xFFFF)
+			throw new UTFDataFormatException("String too long: " + length
+					+ " bytes");
+
+		this.buffer.putShort((short) length);
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c >= 0x0001 && c <= 0x007F) {
+				this.buffer.put((byte) c);
+			} else if (c > 0x07FF) {
+				this.buffer.put((byte) (0xE0 | ((c >> 12) & 0x0F)));
+				this.buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+				this.buffer.put((byte) (0x80 | (c & 0x3F)));
+			} else {
+				this.buffer.put((byte) (0xC0 | ((c >> 6) & 0x1F)));
+				this.buffer.put((byte) (0x80 | (c & 0x3F)));
+			}
+		}
+	}
+}
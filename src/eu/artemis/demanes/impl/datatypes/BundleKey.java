@@ -0,0 +1,110 @@
+/**
+ * File BundleKey.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.datatypes;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * BundleKey
+ * 
+ * An interned symbol for a bundle key. There is exactly one live BundleKey per
+ * key name, so keys compare by identity. Code that looks up the same keys
+ * over and over, such as the arguments of an action, resolves them once and
+ * skips String hashing and comparison afterwards.
+ * 
+ * The table of keys only holds them weakly, so keys that are built from
+ * received data do not accumulate once nothing uses them anymore.
+ * 
+ * The name of a BundleKey is itself an interned String, so bundles that
+ * compare String keys by identity first also find it without a call to
+ * equals.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ * @see KeyedANES_BUNDLE
+ */
+public final class BundleKey {
+
+	/**
+	 * The live keys by name, guarded by itself
+	 */
+	private static final Map<String, WeakReference<BundleKey>> keys = new WeakHashMap<String, WeakReference<BundleKey>>();
+
+	private final String name;
+
+	private final int hash;
+
+	private BundleKey(String name) {
+		this.name = name;
+		this.hash = name.hashCode();
+	}
+
+	/**
+	 * Get the key symbol for the given name
+	 * 
+	 * @param name
+	 * @return the one BundleKey with this name
+	 */
+	public static BundleKey of(String name) {
+		synchronized (keys) {
+			WeakReference<BundleKey> ref = keys.get(name);
+			BundleKey key = ref == null ? null : ref.get();
+			if (key == null) {
+				key = new BundleKey(name.intern());
+				keys.put(key.name, new WeakReference<BundleKey>(key));
+			}
+			return key;
+		}
+	}
+
+	/**
+	 * Get the key symbols for the given names
+	 * 
+	 * @param names
+	 * @return
+	 */
+	public static BundleKey[] of(String[] names) {
+		BundleKey[] result = new BundleKey[names.length];
+		for (int i = 0; i < names.length; i++)
+			result[i] = of(names[i]);
+		return result;
+	}
+
+	/**
+	 * @return the (interned) name of the key
+	 */
+	public String name() {
+		return this.name;
+	}
+
+	@Override
+	public int hashCode() {
+		return this.hash;
+	}
+
+	@Override
+	public String toString() {
+		return this.name;
+	}
+}
@@ -0,0 +1,113 @@
+/**
+ * File BundlePool.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.datatypes;
+
+/**
+ * BundlePool
+ * 
+ * A pool of bundles for code that passes arguments to actions over and over
+ * again, such as a reasoner on every trigger. Once the pool is warmed up,
+ * {@link #acquire()} and {@link #release(PooledANES_BUNDLE)} do not allocate.
+ * 
+ * The pool is thread safe. It keeps at most a fixed number of idle bundles,
+ * bundles released beyond that are left to the garbage collector.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ * @see PooledANES_BUNDLE
+ * @see EmptyANES_BUNDLE
+ */
+public final class BundlePool {
+
+	private static final int DEFAULT_MAX_IDLE = 16;
+
+	private final PooledANES_BUNDLE[] idle;
+
+	private int idleCount;
+
+	public BundlePool() {
+		this(DEFAULT_MAX_IDLE);
+	}
+
+	/**
+	 * @param maxIdle
+	 *            the maximum number of idle bundles kept in the pool
+	 */
+	public BundlePool(int maxIdle) {
+		this.idle = new PooledANES_BUNDLE[Math.max(0, maxIdle)];
+	}
+
+	/**
+	 * Take an empty bundle from the pool, or create one if the pool is empty
+	 * 
+	 * @return an empty bundle, to be returned with
+	 *         {@link PooledANES_BUNDLE#close()}
+	 */
+	public PooledANES_BUNDLE acquire() {
+		synchronized (this.idle) {
+			if (this.idleCount > 0) {
+				PooledANES_BUNDLE bundle = this.idle[--this.idleCount];
+				this.idle[this.idleCount] = null;
+				bundle.released = false;
+				return bundle;
+			}
+		}
+
+		return new PooledANES_BUNDLE(this);
+	}
+
+	/**
+	 * Return a bundle to the pool. Its entries are removed. Releasing a bundle
+	 * that was already released has no effect.
+	 * 
+	 * @param bundle
+	 *            a bundle acquired from this pool
+	 * @throws IllegalArgumentException
+	 *             if the bundle belongs to another pool
+	 */
+	public void release(PooledANES_BUNDLE bundle) {
+		if (bundle.pool != this)
+			throw new IllegalArgumentException(
+					"The bundle belongs to another pool");
+
+		synchronized (this.idle) {
+			if (bundle.released)
+				return;
+
+			bundle.released = true;
+			bundle.clear();
+			if (this.idleCount < this.idle.length)
+				this.idle[this.idleCount++] = bundle;
+		}
+	}
+
+	/**
+	 * Get the number of idle bundles in the pool
+	 * 
+	 * @return
+	 */
+	public int idleCount() {
+		synchronized (this.idle) {
+			return this.idleCount;
+		}
+	}
+}
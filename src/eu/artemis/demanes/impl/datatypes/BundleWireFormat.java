@@ -0,0 +1,536 @@
+/**
+ * File BundleWireFormat.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.datatypes;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.io.UTFDataFormatException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * BundleWireFormat
+ * 
+ * Describes the compact wire form of an ANES_BUNDLE, shared by the bundle
+ * implementations and by the Externalizable form that the serializers write:
+ * 
+ * <pre>
+ * bundle := int count, entry[count]
+ * entry  := unsigned short keyLength, byte[keyLength] key (UTF-8), value
+ * value  := byte tag, payload
+ * </pre>
+ * 
+ * Primitive wrappers are written in their natural big endian form, Strings
+ * and byte arrays with an int length prefix. Values of any other type are
+ * written with Java serialization, also with an int length prefix, so that
+ * every value can be skipped without decoding it. Those values are read
+ * from streams opened by an {@link ObjectInputFactory}, so that their classes
+ * can be resolved outside of this bundle.
+ * 
+ * Within an object stream (the Externalizable form of a bundle) the values
+ * that are not primitive wrappers, Strings or byte arrays are written inline
+ * with {@link ObjectOutput#writeObject(Object)} instead, so that they are
+ * resolved by the stream that reads the bundle.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public final class BundleWireFormat {
+
+	public static final byte TAG_NULL = 0x00;
+
+	public static final byte TAG_BOOLEAN = 0x01;
+
+	public static final byte TAG_BYTE = 0x02;
+
+	public static final byte TAG_SHORT = 0x03;
+
+	public static final byte TAG_CHAR = 0x04;
+
+	public static final byte TAG_INT = 0x05;
+
+	public static final byte TAG_LONG = 0x06;
+
+	public static final byte TAG_FLOAT = 0x07;
+
+	public static final byte TAG_DOUBLE = 0x08;
+
+	public static final byte TAG_STRING = 0x09;
+
+	public static final byte TAG_BYTES = 0x0A;
+
+	public static final byte TAG_OBJECT = 0x0B;
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private static final int MAX_KEY_LENGTH = 0xFFFF;
+
+	/**
+	 * The smallest encoded entry, a key length and a value tag
+	 */
+	private static final int MIN_ENTRY_LENGTH = 3;
+
+	/**
+	 * The largest chunk that is allocated up front when reading a length
+	 * prefixed value from a stream
+	 */
+	private static final int STREAM_CHUNK = 8192;
+
+	/**
+	 * Reads serialized values with a plain ObjectInputStream
+	 */
+	public static final ObjectInputFactory PLAIN_OBJECTS = new ObjectInputFactory() {
+		@Override
+		public ObjectInput open(InputStream in) throws IOException {
+			return new ObjectInputStream(in);
+		}
+	};
+
+	private BundleWireFormat() {
+	}
+
+	/**
+	 * Write a key of a bundle entry
+	 * 
+	 * @param out
+	 * @param key
+	 * @throws IOException
+	 */
+	public static void writeKey(DataOutput out, String key) throws IOException {
+		byte[] bytes = key.getBytes(UTF8);
+		if (bytes.length > MAX_KEY_LENGTH)
+			throw new UTFDataFormatException("Key too long: " + bytes.length
+					+ " bytes");
+
+		out.writeShort(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * Write the tag and payload of a value of a bundle entry
+	 * 
+	 * @param out
+	 * @param value
+	 * @throws IOException
+	 */
+	public static void writeValue(DataOutput out, Serializable value)
+			throws IOException {
+		if (!writePrimitive(out, value)) {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			ObjectOutputStream oos = new ObjectOutputStream(bos);
+			oos.writeObject(value);
+			oos.close();
+
+			out.writeByte(TAG_OBJECT);
+			out.writeInt(bos.size());
+			out.write(bos.toByteArray());
+		}
+	}
+
+	/**
+	 * Write the tag and payload of a value of a bundle entry to an object
+	 * stream. Values that are not primitive wrappers, Strings or byte arrays
+	 * are written inline with the stream.
+	 * 
+	 * @param out
+	 * @param value
+	 * @throws IOException
+	 */
+	public static void writeInlineValue(ObjectOutput out, Serializable value)
+			throws IOException {
+		if (!writePrimitive(out, value)) {
+			out.writeByte(TAG_OBJECT);
+			out.writeObject(value);
+		}
+	}
+
+	/**
+	 * Write a value that has a tag of its own
+	 * 
+	 * @return false if nothing was written, since the value has to be
+	 *         serialized as an object
+	 */
+	private static boolean writePrimitive(DataOutput out, Serializable value)
+			throws IOException {
+		if (value == null) {
+			out.writeByte(TAG_NULL);
+			return true;
+		}
+
+		Class<?> clazz = value.getClass();
+		if (clazz == Boolean.class) {
+			out.writeByte(TAG_BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if (clazz == Byte.class) {
+			out.writeByte(TAG_BYTE);
+			out.writeByte((Byte) value);
+		} else if (clazz == Short.class) {
+			out.writeByte(TAG_SHORT);
+			out.writeShort((Short) value);
+		} else if (clazz == Character.class) {
+			out.writeByte(TAG_CHAR);
+			out.writeChar((Character) value);
+		} else if (clazz == Integer.class) {
+			out.writeByte(TAG_INT);
+			out.writeInt((Integer) value);
+		} else if (clazz == Long.class) {
+			out.writeByte(TAG_LONG);
+			out.writeLong((Long) value);
+		} else if (clazz == Float.class) {
+			out.writeByte(TAG_FLOAT);
+			out.writeFloat((Float) value);
+		} else if (clazz == Double.class) {
+			out.writeByte(TAG_DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (clazz == String.class) {
+			byte[] bytes = ((String) value).getBytes(UTF8);
+			out.writeByte(TAG_STRING);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		} else if (clazz == byte[].class) {
+			byte[] bytes = (byte[]) value;
+			out.writeByte(TAG_BYTES);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Read an entry count from the buffer. A count of more entries than the
+	 * remaining bytes can hold is rejected, so callers can size their arrays
+	 * by it.
+	 * 
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public static int readCount(ByteBuffer in) throws IOException {
+		try {
+			int count = in.getInt();
+			if (count < 0 || count > in.remaining() / MIN_ENTRY_LENGTH)
+				throw new StreamCorruptedException("Invalid entry count "
+						+ count);
+			return count;
+		} catch (BufferUnderflowException e) {
+			throw new StreamCorruptedException("Truncated bundle");
+		}
+	}
+
+	/**
+	 * Read an entry count from a stream
+	 * 
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public static int readCount(DataInput in) throws IOException {
+		int count = in.readInt();
+		if (count < 0)
+			throw new InvalidObjectException("Invalid entry count " + count);
+		return count;
+	}
+
+	/**
+	 * Read a key from the buffer. Keys are interned, since the same argument
+	 * names are used over and over again.
+	 * 
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public static String readKey(ByteBuffer in) throws IOException {
+		try {
+			byte[] bytes = new byte[in.getShort() & 0xFFFF];
+			in.get(bytes);
+			return new String(bytes, UTF8).intern();
+		} catch (BufferUnderflowException e) {
+			throw new StreamCorruptedException("Truncated bundle key");
+		}
+	}
+
+	/**
+	 * Read a key from a stream
+	 * 
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public static String readKey(DataInput in) throws IOException {
+		byte[] bytes = new byte[in.readUnsignedShort()];
+		in.readFully(bytes);
+		return new String(bytes, UTF8).intern();
+	}
+
+	/**
+	 * Read the tag and payload of a value from the buffer, serialized objects
+	 * are read with a plain ObjectInputStream
+	 * 
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 */
+	public static Serializable readValue(ByteBuffer in) throws IOException {
+		return readValue(in, PLAIN_OBJECTS);
+	}
+
+	/**
+	 * Read the tag and payload of a value from the buffer
+	 * 
+	 * @param in
+	 * @param objects
+	 *            opens the streams to read serialized objects from
+	 * @return
+	 * @throws IOException
+	 */
+	public static Serializable readValue(ByteBuffer in,
+			ObjectInputFactory objects) throws IOException {
+		try {
+			byte tag = in.get();
+			switch (tag) {
+			case TAG_NULL:
+				return null;
+			case TAG_BOOLEAN:
+				return Boolean.valueOf(in.get() != 0);
+			case TAG_BYTE:
+				return Byte.valueOf(in.get());
+			case TAG_SHORT:
+				return Short.valueOf(in.getShort());
+			case TAG_CHAR:
+				return Character.valueOf(in.getChar());
+			case TAG_INT:
+				return Integer.valueOf(in.getInt());
+			case TAG_LONG:
+				return Long.valueOf(in.getLong());
+			case TAG_FLOAT:
+				return Float.valueOf(in.getFloat());
+			case TAG_DOUBLE:
+				return Double.valueOf(in.getDouble());
+			case TAG_STRING:
+				return new String(readBytes(in), UTF8);
+			case TAG_BYTES:
+				return readBytes(in);
+			case TAG_OBJECT:
+				return readObject(objects, readBytes(in));
+			default:
+				throw new StreamCorruptedException("Unknown value tag " + tag);
+			}
+		} catch (BufferUnderflowException e) {
+			throw new StreamCorruptedException("Truncated bundle value");
+		}
+	}
+
+	/**
+	 * Read the tag and payload of a value from an object stream, as written
+	 * by {@link #writeInlineValue(ObjectOutput, Serializable)}
+	 * 
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	public static Serializable readInlineValue(ObjectInput in)
+			throws IOException, ClassNotFoundException {
+		byte tag = in.readByte();
+		switch (tag) {
+		case TAG_NULL:
+			return null;
+		case TAG_BOOLEAN:
+			return Boolean.valueOf(in.readBoolean());
+		case TAG_BYTE:
+			return Byte.valueOf(in.readByte());
+		case TAG_SHORT:
+			return Short.valueOf(in.readShort());
+		case TAG_CHAR:
+			return Character.valueOf(in.readChar());
+		case TAG_INT:
+			return Integer.valueOf(in.readInt());
+		case TAG_LONG:
+			return Long.valueOf(in.readLong());
+		case TAG_FLOAT:
+			return Float.valueOf(in.readFloat());
+		case TAG_DOUBLE:
+			return Double.valueOf(in.readDouble());
+		case TAG_STRING:
+			return new String(readBytes(in), UTF8);
+		case TAG_BYTES:
+			return readBytes(in);
+		case TAG_OBJECT:
+			Object obj = in.readObject();
+			if (obj != null && !(obj instanceof Serializable))
+				throw new InvalidObjectException("Not a bundle value: "
+						+ obj.getClass().getName());
+			return (Serializable) obj;
+		default:
+			throw new InvalidObjectException("Unknown value tag " + tag);
+		}
+	}
+
+	/**
+	 * Get the type of the value with the given tag, without decoding the
+	 * payload
+	 * 
+	 * @param tag
+	 * @return the class of the value, or null if the tag does not determine
+	 *         the type (null values and Java serialized objects)
+	 * @throws IOException
+	 *             if the tag is unknown
+	 */
+	public static Class<?> typeOf(byte tag) throws IOException {
+		switch (tag) {
+		case TAG_NULL:
+		case TAG_OBJECT:
+			return null;
+		case TAG_BOOLEAN:
+			return Boolean.class;
+		case TAG_BYTE:
+			return Byte.class;
+		case TAG_SHORT:
+			return Short.class;
+		case TAG_CHAR:
+			return Character.class;
+		case TAG_INT:
+			return Integer.class;
+		case TAG_LONG:
+			return Long.class;
+		case TAG_FLOAT:
+			return Float.class;
+		case TAG_DOUBLE:
+			return Double.class;
+		case TAG_STRING:
+			return String.class;
+		case TAG_BYTES:
+			return byte[].class;
+		default:
+			throw new StreamCorruptedException("Unknown value tag " + tag);
+		}
+	}
+
+	/**
+	 * Advance the buffer past a value without decoding it
+	 * 
+	 * @param in
+	 * @throws IOException
+	 */
+	public static void skipValue(ByteBuffer in) throws IOException {
+		try {
+			byte tag = in.get();
+			int length;
+			switch (tag) {
+			case TAG_NULL:
+				length = 0;
+				break;
+			case TAG_BOOLEAN:
+			case TAG_BYTE:
+				length = 1;
+				break;
+			case TAG_SHORT:
+			case TAG_CHAR:
+				length = 2;
+				break;
+			case TAG_INT:
+			case TAG_FLOAT:
+				length = 4;
+				break;
+			case TAG_LONG:
+			case TAG_DOUBLE:
+				length = 8;
+				break;
+			case TAG_STRING:
+			case TAG_BYTES:
+			case TAG_OBJECT:
+				length = in.getInt();
+				break;
+			default:
+				throw new StreamCorruptedException("Unknown value tag " + tag);
+			}
+
+			if (length < 0 || length > in.remaining())
+				throw new StreamCorruptedException("Truncated bundle value");
+			in.position(in.position() + length);
+		} catch (BufferUnderflowException e) {
+			throw new StreamCorruptedException("Truncated bundle value");
+		}
+	}
+
+	private static byte[] readBytes(ByteBuffer in) throws IOException {
+		int length = in.getInt();
+		if (length < 0 || length > in.remaining())
+			throw new StreamCorruptedException("Invalid length " + length);
+
+		byte[] bytes = new byte[length];
+		in.get(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Read a length prefixed value from a stream. The stream does not tell
+	 * how much is left, so a large value is read in chunks rather than
+	 * trusting its length for a single allocation.
+	 */
+	private static byte[] readBytes(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0)
+			throw new InvalidObjectException("Invalid length " + length);
+
+		if (length <= STREAM_CHUNK) {
+			byte[] bytes = new byte[length];
+			in.readFully(bytes);
+			return bytes;
+		}
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(STREAM_CHUNK);
+		byte[] chunk = new byte[STREAM_CHUNK];
+		for (int left = length; left > 0; left -= STREAM_CHUNK) {
+			int n = Math.min(left, STREAM_CHUNK);
+			in.readFully(chunk, 0, n);
+			bos.write(chunk, 0, n);
+		}
+		return bos.toByteArray();
+	}
+
+	private static Serializable readObject(ObjectInputFactory objects,
+			byte[] bytes) throws IOException {
+		ObjectInput ois = objects.open(new ByteArrayInputStream(bytes));
+		try {
+			return (Serializable) ois.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		} finally {
+			ois.close();
+		}
+	}
+}
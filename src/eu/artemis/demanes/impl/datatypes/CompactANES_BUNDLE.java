@@ -0,0 +1,322 @@
+/**
+ * File CompactANES_BUNDLE.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.datatypes;
+
+import java.io.Serializable;
+
+import eu.artemis.demanes.exceptions.NonExistentKeyException;
+import eu.artemis.demanes.exceptions.TypedRequestException;
+
+/**
+ * CompactANES_BUNDLE
+ * 
+ * A bundle for the small argument sets that are passed to actions, which
+ * usually hold one to four entries. The keys and values are kept in two flat
+ * arrays instead of a HashMap with a table and an entry object per mapping.
+ * 
+ * Up to {@link #LINEAR_LIMIT} entries the arrays are filled densely and
+ * scanned linearly, comparing the keys by reference before equals, so no hash
+ * code is computed. Beyond it the arrays become an open addressing table with
+ * linear probing, kept at most half full. Every accessor finds its entry with
+ * a single lookup. Whether this is faster than a {@link DefaultANES_BUNDLE}
+ * on a given platform is measured by SmallBundleBenchmark, no results are
+ * recorded here.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public final class CompactANES_BUNDLE implements KeyedANES_BUNDLE {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -4870251093546127319L;
+
+	/**
+	 * The number of entries up to which the arrays are scanned linearly
+	 */
+	public static final int LINEAR_LIMIT = 8;
+
+	private static final int DEFAULT_CAPACITY = 4;
+
+	private String[] keys;
+
+	private Serializable[] values;
+
+	private int size;
+
+	/**
+	 * Whether the arrays are an open addressing table
+	 */
+	private boolean hashed;
+
+	public CompactANES_BUNDLE() {
+		this.keys = new String[DEFAULT_CAPACITY];
+		this.values = new Serializable[DEFAULT_CAPACITY];
+	}
+
+	private CompactANES_BUNDLE(CompactANES_BUNDLE other) {
+		this.keys = other.keys.clone();
+		this.values = other.values.clone();
+		this.size = other.size;
+		this.hashed = other.hashed;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @return a shallow copy of the CompactANES_BUNDLE
+	 */
+	@Override
+	public CompactANES_BUNDLE clone() {
+		return new CompactANES_BUNDLE(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(String key) {
+		return this.indexOf(key) >= 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(BundleKey key) {
+		return this.indexOf(key.name(), key.hashCode()) >= 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> boolean containsKey(String key, Class<T> clazz) {
+		int i = this.indexOf(key);
+		return i >= 0 && this.values[i] != null
+				&& clazz.isAssignableFrom(this.values[i].getClass());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object get(String key) throws NonExistentKeyException {
+		int i = this.indexOf(key);
+		if (i < 0)
+			throw new NonExistentKeyException(key);
+		return this.values[i];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object get(BundleKey key) throws NonExistentKeyException {
+		int i = this.indexOf(key.name(), key.hashCode());
+		if (i < 0)
+			throw new NonExistentKeyException(key.name());
+		return this.values[i];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T get(String key, Class<T> clazz) throws TypedRequestException,
+			NonExistentKeyException {
+		return cast(this.get(key), clazz);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T get(BundleKey key, Class<T> clazz)
+			throws TypedRequestException, NonExistentKeyException {
+		return cast(this.get(key), clazz);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Class<?> getType(String key) throws NonExistentKeyException {
+		return this.get(key).getClass();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void put(String key, Serializable val) {
+		if (key == null)
+			throw new NullPointerException("Bundle keys may not be null");
+
+		if (this.hashed) {
+			this.putHashed(key, val);
+			return;
+		}
+
+		for (int i = 0; i < this.size; i++)
+			if (this.keys[i] == key || this.keys[i].equals(key)) {
+				this.values[i] = val;
+				return;
+			}
+
+		if (this.size == LINEAR_LIMIT) {
+			this.rehash(4 * LINEAR_LIMIT);
+			this.putHashed(key, val);
+			return;
+		}
+
+		if (this.size == this.keys.length)
+			this.resize(Math.min(2 * this.size, LINEAR_LIMIT));
+
+		this.keys[this.size] = key;
+		this.values[this.size] = val;
+		this.size++;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void put(BundleKey key, Serializable val) {
+		this.put(key.name(), val);
+	}
+
+	/**
+	 * Remove all entries from the bundle, keeping its arrays for reuse
+	 */
+	public void clear() {
+		if (this.hashed) {
+			// Do not keep a large table around for a small bundle
+			this.keys = new String[DEFAULT_CAPACITY];
+			this.values = new Serializable[DEFAULT_CAPACITY];
+			this.hashed = false;
+		} else {
+			for (int i = 0; i < this.size; i++) {
+				this.keys[i] = null;
+				this.values[i] = null;
+			}
+		}
+		this.size = 0;
+	}
+
+	/**
+	 * Get the number of entries in the bundle
+	 * 
+	 * @return
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	private static <T> T cast(Object t, Class<T> clazz)
+			throws TypedRequestException {
+		if (t != null && !clazz.isAssignableFrom(t.getClass()))
+			throw new TypedRequestException(t.getClass(), clazz);
+
+		return clazz.cast(t);
+	}
+
+	private int indexOf(String key) {
+		if (key == null)
+			return -1;
+		return this.indexOf(key, key.hashCode());
+	}
+
+	private int indexOf(String key, int hash) {
+		String[] k = this.keys;
+		if (!this.hashed) {
+			for (int i = 0; i < this.size; i++)
+				if (k[i] == key || k[i].equals(key))
+					return i;
+			return -1;
+		}
+
+		int mask = k.length - 1;
+		for (int i = spread(hash) & mask;; i = (i + 1) & mask) {
+			if (k[i] == null)
+				return -1;
+			if (k[i] == key || k[i].equals(key))
+				return i;
+		}
+	}
+
+	private void putHashed(String key, Serializable val) {
+		int mask = this.keys.length - 1;
+		int i = spread(key.hashCode()) & mask;
+		while (this.keys[i] != null) {
+			if (this.keys[i] == key || this.keys[i].equals(key)) {
+				this.values[i] = val;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+
+		this.keys[i] = key;
+		this.values[i] = val;
+		// Keep the table at most half full, so probe sequences stay short
+		if (++this.size * 2 > this.keys.length)
+			this.rehash(2 * this.keys.length);
+	}
+
+	private void rehash(int capacity) {
+		String[] oldKeys = this.keys;
+		Serializable[] oldValues = this.values;
+
+		this.keys = new String[capacity];
+		this.values = new Serializable[capacity];
+		this.size = 0;
+		this.hashed = true;
+
+		for (int i = 0; i < oldKeys.length; i++)
+			if (oldKeys[i] != null)
+				this.putHashed(oldKeys[i], oldValues[i]);
+	}
+
+	private void resize(int capacity) {
+		String[] newKeys = new String[capacity];
+		Serializable[] newValues = new Serializable[capacity];
+		System.arraycopy(this.keys, 0, newKeys, 0, this.size);
+		System.arraycopy(this.values, 0, newValues, 0, this.size);
+		this.keys = newKeys;
+		this.values = newValues;
+	}
+
+	private static int spread(int h) {
+		return h ^ (h >>> 16);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder("ANES_BUNDLE: [");
+		for (int i = 0; i < this.keys.length; i++)
+			if (this.keys[i] != null)
+				str.append('[').append(this.keys[i]).append(" => ")
+						.append(this.values[i]).append("] ");
+		return str.append(']').toString();
+	}
+}
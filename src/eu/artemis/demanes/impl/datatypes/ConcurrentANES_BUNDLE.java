@@ -0,0 +1,273 @@
+/**
+ * File ConcurrentANES_BUNDLE.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.datatypes;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import eu.artemis.demanes.datatypes.ANES_BUNDLE;
+import eu.artemis.demanes.exceptions.NonExistentKeyException;
+import eu.artemis.demanes.exceptions.TypedRequestException;
+
+/**
+ * ConcurrentANES_BUNDLE
+ * 
+ * A thread safe bundle, for context that is shared between reasoners which
+ * are triggered on different threads. Reads never block, and
+ * {@link #putIfAbsent(String, Serializable)}, {@link #replace(String,
+ * Serializable, Serializable)} and {@link #update(String, Updater)} change a
+ * key atomically, so shared state can be maintained without external
+ * locking.
+ * 
+ * Only single keys are atomic. A {@link #snapshot()} or {@link #clone()} is
+ * weakly consistent: it sees every value as it was at some moment during the
+ * call, but not necessarily at the same moment, so it may mix the old value
+ * of one key with the new value of another. State that must change together
+ * belongs under a single key, updated with
+ * {@link #update(String, Updater)}.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public final class ConcurrentANES_BUNDLE implements ANES_BUNDLE {
+
+	/**
+	 * Computes the new value of a key in
+	 * {@link ConcurrentANES_BUNDLE#update(String, Updater)}. The updater may
+	 * be called more than once when other threads change the same key, so it
+	 * should not have side effects.
+	 */
+	public interface Updater {
+
+		/**
+		 * @param current
+		 *            the current value, or null if the key is absent
+		 * @return the new value
+		 */
+		public Serializable update(Serializable current);
+	}
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -8530842107618522337L;
+
+	/**
+	 * Stands in for null values, which ConcurrentHashMap does not accept
+	 */
+	private static final Object NULL = new Object();
+
+	private transient ConcurrentHashMap<String, Object> contentMap;
+
+	public ConcurrentANES_BUNDLE() {
+		this.contentMap = new ConcurrentHashMap<String, Object>();
+	}
+
+	/**
+	 * Create a concurrent bundle with the content of another bundle
+	 * 
+	 * @param bundle
+	 */
+	public ConcurrentANES_BUNDLE(DefaultANES_BUNDLE bundle) {
+		this();
+		for (String key : bundle.keySet())
+			try {
+				this.put(key, (Serializable) bundle.get(key));
+			} catch (NonExistentKeyException e) {
+				// Not possible, the key was just listed
+			}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @return an independent concurrent copy of the bundle
+	 */
+	@Override
+	public ConcurrentANES_BUNDLE clone() {
+		ConcurrentANES_BUNDLE clone = new ConcurrentANES_BUNDLE();
+		clone.contentMap.putAll(this.contentMap);
+		return clone;
+	}
+
+	/**
+	 * Get a copy of the bundle for readers. The copy is weakly consistent,
+	 * updates made during the call may or may not be included, key by key.
+	 * 
+	 * @return a plain, unshared copy of the bundle
+	 */
+	public DefaultANES_BUNDLE snapshot() {
+		DefaultANES_BUNDLE snapshot = new DefaultANES_BUNDLE();
+		for (Entry<String, Object> entry : this.contentMap.entrySet())
+			snapshot.put(entry.getKey(), unmask(entry.getValue()));
+		return snapshot;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(String key) {
+		return this.contentMap.containsKey(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> boolean containsKey(String key, Class<T> clazz) {
+		Object value = this.contentMap.get(key);
+		return value != null && value != NULL
+				&& clazz.isAssignableFrom(value.getClass());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object get(String key) throws NonExistentKeyException {
+		Object value = this.contentMap.get(key);
+		if (value == null)
+			throw new NonExistentKeyException(key);
+		return unmask(value);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T get(String key, Class<T> clazz) throws TypedRequestException,
+			NonExistentKeyException {
+		Object t = this.get(key);
+		if (t != null && !clazz.isAssignableFrom(t.getClass()))
+			throw new TypedRequestException(t.getClass(), clazz);
+
+		return clazz.cast(t);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Class<?> getType(String key) throws NonExistentKeyException {
+		return this.get(key).getClass();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void put(String key, Serializable val) {
+		this.contentMap.put(key, mask(val));
+	}
+
+	/**
+	 * Put a value only if the key is absent
+	 * 
+	 * @param key
+	 * @param val
+	 * @return true if the value was put, false if the key was present
+	 */
+	public boolean putIfAbsent(String key, Serializable val) {
+		return this.contentMap.putIfAbsent(key, mask(val)) == null;
+	}
+
+	/**
+	 * Replace the value of a key only if it currently has the expected value
+	 * 
+	 * @param key
+	 * @param expected
+	 *            the expected current value, compared with equals
+	 * @param val
+	 *            the new value
+	 * @return true if the value was replaced
+	 */
+	public boolean replace(String key, Serializable expected, Serializable val) {
+		return this.contentMap.replace(key, mask(expected), mask(val));
+	}
+
+	/**
+	 * Atomically update the value of a key
+	 * 
+	 * @param key
+	 * @param updater
+	 *            computes the new value from the current one
+	 * @return the new value
+	 */
+	public Serializable update(String key, Updater updater) {
+		while (true) {
+			Object current = this.contentMap.get(key);
+			Serializable next = updater.update(current == null ? null
+					: unmask(current));
+
+			if (current == null) {
+				if (this.contentMap.putIfAbsent(key, mask(next)) == null)
+					return next;
+			} else if (this.contentMap.replace(key, current, mask(next))) {
+				return next;
+			}
+			// Another thread changed the key in the mean time, try again
+		}
+	}
+
+	private static Object mask(Serializable value) {
+		return value == null ? NULL : value;
+	}
+
+	private static Serializable unmask(Object value) {
+		return value == NULL ? null : (Serializable) value;
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+
+		DefaultANES_BUNDLE snapshot = this.snapshot();
+		out.writeInt(snapshot.keySet().size());
+		for (String key : snapshot.keySet()) {
+			out.writeObject(key);
+			try {
+				out.writeObject(snapshot.get(key));
+			} catch (NonExistentKeyException e) {
+				// Not possible, the key was just listed
+			}
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+
+		this.contentMap = new ConcurrentHashMap<String, Object>();
+		int count = in.readInt();
+		for (int i = 0; i < count; i++)
+			this.put((String) in.readObject(), (Serializable) in.readObject());
+	}
+
+	@Override
+	public String toString() {
+		return this.snapshot().toString();
+	}
+}
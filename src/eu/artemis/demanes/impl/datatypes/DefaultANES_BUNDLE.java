@@ -19,9 +19,17 @@
  */
 package eu.artemis.demanes.impl.datatypes;
 
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import eu.artemis.demanes.datatypes.ANES_BUNDLE;
 import eu.artemis.demanes.exceptions.NonExistentKeyException;
@@ -30,12 +38,17 @@ import eu.artemis.demanes.exceptions.TypedRequestException;
 /**
  * DefaultANES_BUNDLE
  * 
+ * The bundle is Externalizable, it is written in the compact form described
+ * by {@link BundleWireFormat} rather than as a serialized HashMap. Values of
+ * other types are written inline with the enclosing stream, so that their
+ * classes are resolved by the stream that reads the bundle.
+ * 
  * @author leeuwencjv
  * @version 0.1
  * @since 10 apr. 2014
  * 
  */
-public final class DefaultANES_BUNDLE implements ANES_BUNDLE {
+public final class DefaultANES_BUNDLE implements ANES_BUNDLE, Externalizable {
 
 	/**
      * 
@@ -48,6 +61,49 @@ public final class DefaultANES_BUNDLE implements ANES_BUNDLE {
 		this.contentMap = new HashMap<String, Serializable>();
 	}
 
+	private DefaultANES_BUNDLE(HashMap<String, Serializable> contentMap) {
+		this.contentMap = contentMap;
+	}
+
+	/**
+	 * Read a bundle in the wire form of {@link BundleWireFormat}, starting at
+	 * the current position of the buffer. On return the position of the
+	 * buffer is advanced past the bundle.
+	 * 
+	 * @param in
+	 *            the buffer to read from
+	 * @return the decoded bundle
+	 * @throws IOException
+	 *             if the buffer does not contain a valid bundle
+	 */
+	public static DefaultANES_BUNDLE readFrom(ByteBuffer in) throws IOException {
+		return readFrom(in, BundleWireFormat.PLAIN_OBJECTS);
+	}
+
+	/**
+	 * Read a bundle in the wire form of {@link BundleWireFormat}, starting at
+	 * the current position of the buffer, with the serialized values read
+	 * from streams of the given factory. On return the position of the buffer
+	 * is advanced past the bundle.
+	 * 
+	 * @param in
+	 *            the buffer to read from
+	 * @param objects
+	 *            opens the streams to read serialized values from
+	 * @return the decoded bundle
+	 * @throws IOException
+	 *             if the buffer does not contain a valid bundle
+	 */
+	public static DefaultANES_BUNDLE readFrom(ByteBuffer in,
+			ObjectInputFactory objects) throws IOException {
+		DefaultANES_BUNDLE bundle = new DefaultANES_BUNDLE();
+		int count = BundleWireFormat.readCount(in);
+		for (int i = 0; i < count; i++)
+			bundle.contentMap.put(BundleWireFormat.readKey(in),
+					BundleWireFormat.readValue(in, objects));
+		return bundle;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 * 
@@ -55,15 +111,9 @@ public final class DefaultANES_BUNDLE implements ANES_BUNDLE {
 	 */
 	@Override
 	public DefaultANES_BUNDLE clone() {
-		DefaultANES_BUNDLE clone = new DefaultANES_BUNDLE();
-
-		@SuppressWarnings("unchecked")
-		HashMap<String, Serializable> t = (HashMap<String, Serializable>) contentMap
-				.clone();
-		for (Entry<String, Serializable> key : t.entrySet())
-			clone.put(key.getKey(), key.getValue());
-
-		return clone;
+		// Copy the map once, rather than cloning it and re-putting all entries
+		return new DefaultANES_BUNDLE(new HashMap<String, Serializable>(
+				this.contentMap));
 	}
 
 	/**
@@ -91,10 +141,11 @@ public final class DefaultANES_BUNDLE implements ANES_BUNDLE {
 	 */
 	@Override
 	public Object get(String key) throws NonExistentKeyException {
-		if (this.containsKey(key))
-			return this.contentMap.get(key);
-		else
+		Serializable value = this.contentMap.get(key);
+		// Only a null value needs a second lookup to tell it from a miss
+		if (value == null && !this.contentMap.containsKey(key))
 			throw new NonExistentKeyException(key);
+		return value;
 	}
 
 	/**
@@ -127,10 +178,16 @@ public final class DefaultANES_BUNDLE implements ANES_BUNDLE {
 	 */
 	@Override
 	public Class<?> getType(String key) throws NonExistentKeyException {
-		if (this.containsKey(key))
-			return this.get(key).getClass();
-		else
-			throw new NonExistentKeyException(key);
+		return this.get(key).getClass();
+	}
+
+	/**
+	 * Get the keys that are present in the bundle
+	 *
+	 * @return an unmodifiable view of the keys in the bundle
+	 */
+	public Set<String> keySet() {
+		return Collections.unmodifiableSet(this.contentMap.keySet());
 	}
 
 	/**
@@ -141,6 +198,45 @@ public final class DefaultANES_BUNDLE implements ANES_BUNDLE {
 		this.contentMap.put(key, val);
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException,
+			ClassNotFoundException {
+		int count = BundleWireFormat.readCount(in);
+		for (int i = 0; i < count; i++)
+			this.contentMap.put(BundleWireFormat.readKey(in),
+					BundleWireFormat.readInlineValue(in));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		out.writeInt(this.contentMap.size());
+		for (Entry<String, Serializable> entry : this.contentMap.entrySet()) {
+			BundleWireFormat.writeKey(out, entry.getKey());
+			BundleWireFormat.writeInlineValue(out, entry.getValue());
+		}
+	}
+
+	/**
+	 * Write the bundle in the wire form of {@link BundleWireFormat}
+	 * 
+	 * @param out
+	 *            the output to write to
+	 * @throws IOException
+	 */
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeInt(this.contentMap.size());
+		for (Entry<String, Serializable> entry : this.contentMap.entrySet()) {
+			BundleWireFormat.writeKey(out, entry.getKey());
+			BundleWireFormat.writeValue(out, entry.getValue());
+		}
+	}
+
 	@Override
 	public String toString() {
 		String str = "ANES_BUNDLE: [";
@@ -0,0 +1,399 @@
+/**
+ * File DirectANES_BUNDLE.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.datatypes;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import eu.artemis.demanes.datatypes.ANES_BUNDLE;
+import eu.artemis.demanes.exceptions.NonExistentKeyException;
+import eu.artemis.demanes.exceptions.TypedRequestException;
+
+/**
+ * DirectANES_BUNDLE
+ * 
+ * A bundle that is stored in a direct ByteBuffer in the wire form of
+ * {@link BundleWireFormat}. Every put encodes its entry right away, so a
+ * bundle that is built to be sent needs no further encoding: its
+ * {@link #encoded()} content can be written to a channel as is.
+ * 
+ * Entries are appended to the buffer, an index of the keys points to the
+ * values. Replacing a value removes the old entry first, so the wire form
+ * never holds duplicate keys. Values are decoded from the buffer when they
+ * are requested.
+ * 
+ * The buffer comes from a pool of direct buffers and is returned to it by
+ * {@link #close()}, after which the bundle can no longer be used. A bundle
+ * that is not closed is simply left to the garbage collector. The views
+ * returned by {@link #encoded()} share the buffer, so their ownership ends
+ * with the next put or with close: they are then emptied, so that a stale
+ * read fails instead of seeing the content of another bundle. Buffers
+ * derived from a view (slices, duplicates, an {@link EncodedANES_BUNDLE})
+ * can not be emptied and must not outlive it either.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public final class DirectANES_BUNDLE implements ANES_BUNDLE, Closeable {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -6039113307934812775L;
+
+	private static final int DEFAULT_INDEX_CAPACITY = 4;
+
+	private transient ByteBuffer buffer;
+
+	private transient BufferDataOutput output;
+
+	private transient String[] keys = new String[DEFAULT_INDEX_CAPACITY];
+
+	/**
+	 * Start of the entries of the keys
+	 */
+	private transient int[] entryPositions = new int[DEFAULT_INDEX_CAPACITY];
+
+	/**
+	 * Start of the values of the keys
+	 */
+	private transient int[] valuePositions = new int[DEFAULT_INDEX_CAPACITY];
+
+	private transient int size;
+
+	/**
+	 * The views handed out since the last put
+	 */
+	private transient ArrayList<ByteBuffer> views = new ArrayList<ByteBuffer>();
+
+	private final transient ObjectInputFactory objects;
+
+	public DirectANES_BUNDLE() {
+		this(DirectBufferPool.MIN_CAPACITY);
+	}
+
+	/**
+	 * @param capacity
+	 *            the initial capacity of the buffer in bytes
+	 */
+	public DirectANES_BUNDLE(int capacity) {
+		this(capacity, BundleWireFormat.PLAIN_OBJECTS);
+	}
+
+	/**
+	 * @param capacity
+	 *            the initial capacity of the buffer in bytes
+	 * @param objects
+	 *            opens the streams to read serialized values from
+	 */
+	public DirectANES_BUNDLE(int capacity, ObjectInputFactory objects) {
+		this.objects = objects;
+		this.buffer = DirectBufferPool.acquire(capacity);
+		this.buffer.putInt(0);
+		this.output = new BufferDataOutput(this.buffer);
+	}
+
+	/**
+	 * Get the wire form of the bundle. The returned buffer is a read-only
+	 * view on the content of the bundle, valid until the next put or until
+	 * the bundle is closed, after which it is empty.
+	 * 
+	 * @return the bundle in the form of {@link BundleWireFormat}, from
+	 *         position to limit
+	 */
+	public ByteBuffer encoded() {
+		ByteBuffer view = this.view();
+		this.views.add(view);
+		return view;
+	}
+
+	/**
+	 * Return the buffer of the bundle to the pool. Closing a bundle twice has
+	 * no effect.
+	 */
+	@Override
+	public void close() {
+		if (this.buffer != null) {
+			this.invalidateViews();
+			DirectBufferPool.release(this.buffer);
+			this.buffer = null;
+			this.output = null;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @return a decoded copy of the bundle on the heap
+	 */
+	@Override
+	public DefaultANES_BUNDLE clone() {
+		try {
+			return DefaultANES_BUNDLE.readFrom(this.view(), this.objects);
+		} catch (IOException e) {
+			// The content was encoded by this bundle
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(String key) {
+		return this.indexOf(key) >= 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> boolean containsKey(String key, Class<T> clazz) {
+		try {
+			Class<?> type = this.getType(key);
+			return type != null && clazz.isAssignableFrom(type);
+		} catch (NonExistentKeyException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object get(String key) throws NonExistentKeyException {
+		int i = this.require(key);
+
+		ByteBuffer buf = this.buffer().duplicate();
+		buf.position(this.valuePositions[i]);
+		try {
+			return BundleWireFormat.readValue(buf, this.objects);
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to decode value of " + key,
+					e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T get(String key, Class<T> clazz) throws TypedRequestException,
+			NonExistentKeyException {
+		Object t = this.get(key);
+		if (t != null && !clazz.isAssignableFrom(t.getClass()))
+			throw new TypedRequestException(t.getClass(), clazz);
+
+		return clazz.cast(t);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @return the type of the value, or null if the value is null
+	 */
+	@Override
+	public Class<?> getType(String key) throws NonExistentKeyException {
+		int i = this.require(key);
+
+		byte tag = this.buffer().get(this.valuePositions[i]);
+		if (tag == BundleWireFormat.TAG_NULL)
+			return null;
+
+		try {
+			Class<?> type = BundleWireFormat.typeOf(tag);
+			if (type != null)
+				return type;
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to decode value of " + key,
+					e);
+		}
+
+		return this.get(key).getClass();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @throws IllegalArgumentException
+	 *             if the entry can not be encoded, the key is then absent
+	 */
+	@Override
+	public void put(String key, Serializable val) {
+		if (key == null)
+			throw new NullPointerException("Bundle keys may not be null");
+
+		ByteBuffer buf = this.buffer();
+		this.invalidateViews();
+		int i = this.indexOf(key);
+		if (i >= 0)
+			this.remove(i);
+
+		int start = buf.position();
+		while (true) {
+			try {
+				BundleWireFormat.writeKey(this.output, key);
+				int valuePosition = this.buffer.position();
+				BundleWireFormat.writeValue(this.output, val);
+				this.addIndex(key, start, valuePosition);
+				break;
+			} catch (BufferOverflowException e) {
+				this.buffer.position(start);
+				this.grow();
+			} catch (IOException e) {
+				this.buffer.position(start);
+				throw new IllegalArgumentException("Unable to encode " + key, e);
+			}
+		}
+
+		this.buffer.putInt(0, this.size);
+	}
+
+	/**
+	 * Get the number of entries in the bundle
+	 * 
+	 * @return
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	private ByteBuffer buffer() {
+		if (this.buffer == null)
+			throw new IllegalStateException("The bundle is closed");
+		return this.buffer;
+	}
+
+	private ByteBuffer view() {
+		ByteBuffer view = this.buffer().duplicate();
+		view.flip();
+		return view.asReadOnlyBuffer();
+	}
+
+	private void invalidateViews() {
+		for (ByteBuffer view : this.views)
+			view.limit(0);
+		this.views.clear();
+	}
+
+	private int indexOf(String key) {
+		for (int i = 0; i < this.size; i++)
+			if (this.keys[i] == key || this.keys[i].equals(key))
+				return i;
+		return -1;
+	}
+
+	private int require(String key) throws NonExistentKeyException {
+		int i = this.indexOf(key);
+		if (i < 0)
+			throw new NonExistentKeyException(key);
+		return i;
+	}
+
+	private void addIndex(String key, int entryPosition, int valuePosition) {
+		if (this.size == this.keys.length) {
+			int capacity = 2 * this.size;
+			this.keys = Arrays.copyOf(this.keys, capacity);
+			this.entryPositions = Arrays.copyOf(this.entryPositions, capacity);
+			this.valuePositions = Arrays.copyOf(this.valuePositions, capacity);
+		}
+
+		this.keys[this.size] = key;
+		this.entryPositions[this.size] = entryPosition;
+		this.valuePositions[this.size] = valuePosition;
+		this.size++;
+	}
+
+	/**
+	 * Remove the entry at index i from the buffer and the index, by moving
+	 * the entries behind it to the front
+	 */
+	private void remove(int i) {
+		ByteBuffer buf = this.buffer;
+		int start = this.entryPositions[i];
+
+		ByteBuffer value = buf.duplicate();
+		value.position(this.valuePositions[i]);
+		try {
+			BundleWireFormat.skipValue(value);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		int end = value.position();
+		int length = end - start;
+
+		byte[] tail = new byte[buf.position() - end];
+		value.get(tail, 0, tail.length);
+		buf.position(start);
+		buf.put(tail);
+
+		this.size--;
+		System.arraycopy(this.keys, i + 1, this.keys, i, this.size - i);
+		System.arraycopy(this.entryPositions, i + 1, this.entryPositions, i,
+				this.size - i);
+		System.arraycopy(this.valuePositions, i + 1, this.valuePositions, i,
+				this.size - i);
+		this.keys[this.size] = null;
+
+		for (int j = i; j < this.size; j++) {
+			this.entryPositions[j] -= length;
+			this.valuePositions[j] -= length;
+		}
+	}
+
+	private void grow() {
+		ByteBuffer old = this.buffer;
+		ByteBuffer grown = DirectBufferPool.acquire(2 * old.capacity());
+
+		old.flip();
+		grown.put(old);
+		DirectBufferPool.release(old);
+
+		this.buffer = grown;
+		this.output.setBuffer(grown);
+	}
+
+	/**
+	 * A direct buffer can not be serialized, the bundle is sent as a regular
+	 * bundle instead
+	 * 
+	 * @return
+	 * @throws ObjectStreamException
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		return this.clone();
+	}
+
+	@Override
+	public String toString() {
+		if (this.buffer == null)
+			return "ANES_BUNDLE: [closed]";
+		return "ANES_BUNDLE: [direct, " + this.size + " entries, "
+				+ this.buffer.position() + " bytes]";
+	}
+}
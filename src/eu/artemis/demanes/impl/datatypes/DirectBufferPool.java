@@ -0,0 +1,117 @@
+/**
+ * File DirectBufferPool.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.datatypes;
+
+import java.nio.ByteBuffer;
+
+/**
+ * DirectBufferPool
+ * 
+ * Recycles the direct buffers of {@link DirectANES_BUNDLE}s. Direct memory is
+ * only freed when the garbage collector gets around to the buffer that owns
+ * it, so buffers are returned here when a bundle is closed instead.
+ * 
+ * Buffers come in power of two size classes from {@link #MIN_CAPACITY} to
+ * {@link #MAX_CAPACITY}, a few of each class are kept. Larger buffers are not
+ * pooled, their memory is freed when they are garbage collected. The largest
+ * pooled size is set with the {@value #MAX_CAPACITY_PROPERTY} system
+ * property, 64 KB by default.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+final class DirectBufferPool {
+
+	static final int MIN_CAPACITY = 256;
+
+	static final String MAX_CAPACITY_PROPERTY = "dmns.bundle.maxPooledBuffer";
+
+	private static final int DEFAULT_MAX_CAPACITY = 64 * 1024;
+
+	private static final int LARGEST_CAPACITY = 1 << 30;
+
+	static final int MAX_CAPACITY = sizeFor(Math.min(
+			Integer.getInteger(MAX_CAPACITY_PROPERTY, DEFAULT_MAX_CAPACITY),
+			LARGEST_CAPACITY));
+
+	private static final int MAX_IDLE_PER_CLASS = 8;
+
+	private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_CAPACITY);
+
+	private static final ByteBuffer[][] idle = new ByteBuffer[Integer
+			.numberOfTrailingZeros(MAX_CAPACITY) - MIN_SHIFT + 1][MAX_IDLE_PER_CLASS];
+
+	private static final int[] idleCount = new int[idle.length];
+
+	private DirectBufferPool() {
+	}
+
+	/**
+	 * Get a cleared direct buffer with at least the given capacity
+	 * 
+	 * @param capacity
+	 * @return
+	 */
+	static ByteBuffer acquire(int capacity) {
+		int size = sizeFor(capacity);
+		if (size > MAX_CAPACITY)
+			return ByteBuffer.allocateDirect(size);
+
+		int sizeClass = Integer.numberOfTrailingZeros(size) - MIN_SHIFT;
+		synchronized (idle) {
+			if (idleCount[sizeClass] > 0) {
+				int i = --idleCount[sizeClass];
+				ByteBuffer buffer = idle[sizeClass][i];
+				idle[sizeClass][i] = null;
+				buffer.clear();
+				return buffer;
+			}
+		}
+
+		return ByteBuffer.allocateDirect(size);
+	}
+
+	/**
+	 * Return a buffer obtained from {@link #acquire(int)}. The buffer must not
+	 * be used anymore afterwards.
+	 * 
+	 * @param buffer
+	 */
+	static void release(ByteBuffer buffer) {
+		int size = buffer.capacity();
+		if (size > MAX_CAPACITY || Integer.bitCount(size) != 1
+				|| size < MIN_CAPACITY)
+			return;
+
+		int sizeClass = Integer.numberOfTrailingZeros(size) - MIN_SHIFT;
+		synchronized (idle) {
+			if (idleCount[sizeClass] < MAX_IDLE_PER_CLASS)
+				idle[sizeClass][idleCount[sizeClass]++] = buffer;
+		}
+	}
+
+	private static int sizeFor(int capacity) {
+		if (capacity <= MIN_CAPACITY)
+			return MIN_CAPACITY;
+		return Integer.highestOneBit(capacity - 1) << 1;
+	}
+}
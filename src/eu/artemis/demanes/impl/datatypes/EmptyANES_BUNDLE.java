@@ -0,0 +1,158 @@
+/**
+ * File EmptyANES_BUNDLE.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.datatypes;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+
+import eu.artemis.demanes.exceptions.NonExistentKeyException;
+import eu.artemis.demanes.exceptions.TypedRequestException;
+
+/**
+ * EmptyANES_BUNDLE
+ * 
+ * The shared, immutable bundle without entries. Use {@link #INSTANCE} instead
+ * of allocating a new bundle when there are no arguments to pass.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public final class EmptyANES_BUNDLE implements KeyedANES_BUNDLE {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -2436412906254171302L;
+
+	public static final EmptyANES_BUNDLE INSTANCE = new EmptyANES_BUNDLE();
+
+	private EmptyANES_BUNDLE() {
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @return a new, mutable bundle without entries
+	 */
+	@Override
+	public CompactANES_BUNDLE clone() {
+		return new CompactANES_BUNDLE();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(String key) {
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(BundleKey key) {
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> boolean containsKey(String key, Class<T> clazz) {
+		return false;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object get(String key) throws NonExistentKeyException {
+		throw new NonExistentKeyException(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object get(BundleKey key) throws NonExistentKeyException {
+		throw new NonExistentKeyException(key.name());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T get(String key, Class<T> clazz) throws TypedRequestException,
+			NonExistentKeyException {
+		throw new NonExistentKeyException(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T get(BundleKey key, Class<T> clazz)
+			throws TypedRequestException, NonExistentKeyException {
+		throw new NonExistentKeyException(key.name());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Class<?> getType(String key) throws NonExistentKeyException {
+		throw new NonExistentKeyException(key);
+	}
+
+	/**
+	 * The empty bundle is immutable
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void put(String key, Serializable val) {
+		throw new UnsupportedOperationException(
+				"The empty bundle is immutable, clone it to modify it");
+	}
+
+	/**
+	 * The empty bundle is immutable
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void put(BundleKey key, Serializable val) {
+		this.put(key.name(), val);
+	}
+
+	private Object readResolve() throws ObjectStreamException {
+		return INSTANCE;
+	}
+
+	@Override
+	public String toString() {
+		return "ANES_BUNDLE: []";
+	}
+}
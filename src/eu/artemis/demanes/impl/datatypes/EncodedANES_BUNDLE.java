@@ -0,0 +1,368 @@
+/**
+ * File EncodedANES_BUNDLE.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.datatypes;
+
+import java.io.IOException;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import eu.artemis.demanes.datatypes.ANES_BUNDLE;
+import eu.artemis.demanes.exceptions.NonExistentKeyException;
+import eu.artemis.demanes.exceptions.TypedRequestException;
+
+/**
+ * EncodedANES_BUNDLE
+ * 
+ * A read-only view of a bundle in the wire form of {@link BundleWireFormat}.
+ * Nothing is decoded up front, the value of a key is only decoded when it is
+ * requested, so that reading a few arguments out of a large bundle does not
+ * pay for the rest of the entries.
+ * 
+ * Without an index a lookup scans the entries and compares the encoded keys
+ * byte by byte. With an index the keys are decoded once into a sorted array
+ * which is searched with a binary search, which pays off when many keys are
+ * read from the same bundle.
+ * 
+ * The view shares the content of the wrapped buffer, which must therefore
+ * not be modified while the view is in use. When serialized the view is
+ * replaced by an equivalent {@link DefaultANES_BUNDLE}.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public final class EncodedANES_BUNDLE implements ANES_BUNDLE {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -1787466591011478390L;
+
+	private final transient ByteBuffer buffer;
+
+	private final transient int count;
+
+	/**
+	 * Sorted keys, or null if the view is not indexed
+	 */
+	private final transient String[] keys;
+
+	/**
+	 * Positions of the values of the sorted keys
+	 */
+	private final transient int[] valuePositions;
+
+	private final transient ObjectInputFactory objects;
+
+	private EncodedANES_BUNDLE(ByteBuffer buffer, int count, String[] keys,
+			int[] valuePositions, ObjectInputFactory objects) {
+		this.buffer = buffer;
+		this.count = count;
+		this.keys = keys;
+		this.valuePositions = valuePositions;
+		this.objects = objects;
+	}
+
+	/**
+	 * Wrap the bundle starting at the current position of the buffer. The
+	 * entries are skipped to find the end of the bundle, on return the
+	 * position of the buffer is advanced past the bundle.
+	 * 
+	 * @param in
+	 *            the buffer to read from
+	 * @return a view on the encoded bundle
+	 * @throws IOException
+	 *             if the buffer does not contain a valid bundle
+	 */
+	public static EncodedANES_BUNDLE wrap(ByteBuffer in) throws IOException {
+		return wrap(in, false);
+	}
+
+	/**
+	 * Wrap the bundle starting at the current position of the buffer, and
+	 * optionally build a sorted index of its keys. On return the position of
+	 * the buffer is advanced past the bundle.
+	 * 
+	 * @param in
+	 *            the buffer to read from
+	 * @param indexed
+	 *            whether to build a key index
+	 * @return a view on the encoded bundle
+	 * @throws IOException
+	 *             if the buffer does not contain a valid bundle
+	 */
+	public static EncodedANES_BUNDLE wrap(ByteBuffer in, boolean indexed)
+			throws IOException {
+		return wrap(in, indexed, BundleWireFormat.PLAIN_OBJECTS);
+	}
+
+	/**
+	 * Wrap the bundle starting at the current position of the buffer, and
+	 * optionally build a sorted index of its keys. Serialized values are read
+	 * from streams of the given factory. On return the position of the buffer
+	 * is advanced past the bundle.
+	 * 
+	 * @param in
+	 *            the buffer to read from
+	 * @param indexed
+	 *            whether to build a key index
+	 * @param objects
+	 *            opens the streams to read serialized values from
+	 * @return a view on the encoded bundle
+	 * @throws IOException
+	 *             if the buffer does not contain a valid bundle
+	 */
+	public static EncodedANES_BUNDLE wrap(ByteBuffer in, boolean indexed,
+			ObjectInputFactory objects) throws IOException {
+		ByteBuffer buf = in.slice();
+		int count = BundleWireFormat.readCount(buf);
+
+		String[] keys = indexed ? new String[count] : null;
+		int[] positions = indexed ? new int[count] : null;
+
+		for (int i = 0; i < count; i++) {
+			if (indexed) {
+				keys[i] = BundleWireFormat.readKey(buf);
+				positions[i] = buf.position();
+			} else {
+				skipKey(buf);
+			}
+			BundleWireFormat.skipValue(buf);
+		}
+
+		if (indexed)
+			sortIndex(keys, positions);
+
+		int length = buf.position();
+		in.position(in.position() + length);
+
+		buf.flip();
+		return new EncodedANES_BUNDLE(buf.slice().asReadOnlyBuffer(), count,
+				keys, positions, objects);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @return a mutable, decoded copy of the bundle
+	 */
+	@Override
+	public DefaultANES_BUNDLE clone() {
+		try {
+			return DefaultANES_BUNDLE.readFrom(this.buffer.duplicate(),
+					this.objects);
+		} catch (IOException e) {
+			// The content was validated when it was wrapped
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(String key) {
+		return this.find(key) >= 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> boolean containsKey(String key, Class<T> clazz) {
+		try {
+			return clazz.isAssignableFrom(this.getType(key));
+		} catch (NonExistentKeyException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object get(String key) throws NonExistentKeyException {
+		int pos = this.find(key);
+		if (pos < 0)
+			throw new NonExistentKeyException(key);
+
+		ByteBuffer buf = this.buffer.duplicate();
+		buf.position(pos);
+		try {
+			return BundleWireFormat.readValue(buf, this.objects);
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to decode value of " + key,
+					e);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T get(String key, Class<T> clazz) throws TypedRequestException,
+			NonExistentKeyException {
+		Object t = this.get(key);
+		if (t != null && !clazz.isAssignableFrom(t.getClass()))
+			throw new TypedRequestException(t.getClass(), clazz);
+
+		return clazz.cast(t);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * For primitive wrappers, Strings and byte arrays the type is taken from
+	 * the tag, without decoding the value.
+	 */
+	@Override
+	public Class<?> getType(String key) throws NonExistentKeyException {
+		int pos = this.find(key);
+		if (pos < 0)
+			throw new NonExistentKeyException(key);
+
+		try {
+			Class<?> type = BundleWireFormat.typeOf(this.buffer.get(pos));
+			if (type != null)
+				return type;
+		} catch (IOException e) {
+			throw new IllegalStateException("Unable to decode value of " + key,
+					e);
+		}
+
+		return this.get(key).getClass();
+	}
+
+	/**
+	 * Get the number of entries in the bundle
+	 * 
+	 * @return
+	 */
+	public int size() {
+		return this.count;
+	}
+
+	/**
+	 * The view is read-only
+	 * 
+	 * @throws UnsupportedOperationException
+	 *             always
+	 */
+	@Override
+	public void put(String key, Serializable val) {
+		throw new UnsupportedOperationException(
+				"An EncodedANES_BUNDLE is read-only, clone it to modify it");
+	}
+
+	/**
+	 * Serialize the view as a regular bundle, since the buffer can not be
+	 * serialized itself
+	 * 
+	 * @return
+	 * @throws ObjectStreamException
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		return this.clone();
+	}
+
+	/**
+	 * Find the position of the value of the given key
+	 * 
+	 * @param key
+	 * @return the position of the value tag, or -1 if the key is absent
+	 */
+	private int find(String key) {
+		if (key == null)
+			return -1;
+
+		if (this.keys != null) {
+			int i = Arrays.binarySearch(this.keys, key);
+			return i >= 0 ? this.valuePositions[i] : -1;
+		}
+
+		byte[] wanted = key.getBytes(BundleWireFormat.UTF8);
+		ByteBuffer buf = this.buffer.duplicate();
+		buf.position(4);
+		try {
+			for (int i = 0; i < this.count; i++) {
+				int length = buf.getShort() & 0xFFFF;
+				boolean match = length == wanted.length
+						&& matches(buf, buf.position(), wanted);
+				buf.position(buf.position() + length);
+				if (match)
+					return buf.position();
+				BundleWireFormat.skipValue(buf);
+			}
+		} catch (IOException e) {
+			// The content was validated when it was wrapped
+			throw new IllegalStateException(e);
+		}
+
+		return -1;
+	}
+
+	private static boolean matches(ByteBuffer buf, int pos, byte[] wanted) {
+		for (int i = 0; i < wanted.length; i++)
+			if (buf.get(pos + i) != wanted[i])
+				return false;
+		return true;
+	}
+
+	private static void skipKey(ByteBuffer buf) throws IOException {
+		try {
+			int length = buf.getShort() & 0xFFFF;
+			if (length > buf.remaining())
+				throw new StreamCorruptedException("Truncated bundle key");
+			buf.position(buf.position() + length);
+		} catch (BufferUnderflowException e) {
+			throw new StreamCorruptedException("Truncated bundle key");
+		}
+	}
+
+	/**
+	 * Sort the keys, and the value positions along with them
+	 */
+	private static void sortIndex(String[] keys, int[] positions) {
+		// Insertion sort, bundles have few entries
+		for (int i = 1; i < keys.length; i++) {
+			String key = keys[i];
+			int pos = positions[i];
+			int j = i - 1;
+			while (j >= 0 && keys[j].compareTo(key) > 0) {
+				keys[j + 1] = keys[j];
+				positions[j + 1] = positions[j];
+				j--;
+			}
+			keys[j + 1] = key;
+			positions[j + 1] = pos;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "ANES_BUNDLE: [encoded, " + this.count + " entries, "
+				+ this.buffer.remaining() + " bytes]";
+	}
+}
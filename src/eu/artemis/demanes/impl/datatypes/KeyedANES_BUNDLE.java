@@ -0,0 +1,63 @@
+/**
+ * File KeyedANES_BUNDLE.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.datatypes;
+
+import java.io.Serializable;
+
+import eu.artemis.demanes.datatypes.ANES_BUNDLE;
+import eu.artemis.demanes.exceptions.NonExistentKeyException;
+import eu.artemis.demanes.exceptions.TypedRequestException;
+
+/**
+ * KeyedANES_BUNDLE
+ * 
+ * An ANES_BUNDLE which can also be accessed with interned {@link BundleKey}
+ * symbols. Every method behaves exactly like its String counterpart called
+ * with {@link BundleKey#name()}, but can use the precomputed hash code and
+ * identity of the key.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public interface KeyedANES_BUNDLE extends ANES_BUNDLE {
+
+	/**
+	 * @see ANES_BUNDLE#containsKey(String)
+	 */
+	public boolean containsKey(BundleKey key);
+
+	/**
+	 * @see ANES_BUNDLE#get(String)
+	 */
+	public Object get(BundleKey key) throws NonExistentKeyException;
+
+	/**
+	 * @see ANES_BUNDLE#get(String, Class)
+	 */
+	public <T> T get(BundleKey key, Class<T> clazz)
+			throws TypedRequestException, NonExistentKeyException;
+
+	/**
+	 * @see ANES_BUNDLE#put(String, Serializable)
+	 */
+	public void put(BundleKey key, Serializable val);
+}
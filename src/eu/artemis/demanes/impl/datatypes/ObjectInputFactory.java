@@ -0,0 +1,53 @@
+/**
+ * File ObjectInputFactory.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.datatypes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+
+/**
+ * ObjectInputFactory
+ * 
+ * Opens the streams from which the Java serialized values in the wire form of
+ * {@link BundleWireFormat} are read. A plain ObjectInputStream resolves
+ * classes through the class loader of this bundle, which in a framework does
+ * not see the classes of other bundles. The serialization layer provides a
+ * factory that resolves the classes through the framework instead.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public interface ObjectInputFactory {
+
+	/**
+	 * Open an object stream on the given serialized value
+	 * 
+	 * @param in
+	 *            the serialized value
+	 * @return a stream to read the value from
+	 * @throws IOException
+	 *             if the stream header is invalid
+	 */
+	ObjectInput open(InputStream in) throws IOException;
+
+}
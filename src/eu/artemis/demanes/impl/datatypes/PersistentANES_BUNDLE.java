@@ -0,0 +1,410 @@
+/**
+ * File PersistentANES_BUNDLE.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.datatypes;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import eu.artemis.demanes.datatypes.ANES_BUNDLE;
+import eu.artemis.demanes.exceptions.NonExistentKeyException;
+import eu.artemis.demanes.exceptions.TypedRequestException;
+
+/**
+ * PersistentANES_BUNDLE
+ * 
+ * A bundle stored in a hash array mapped trie of immutable nodes. Since a
+ * node is never modified once created, a clone simply shares the root of its
+ * parent, which makes {@link #clone()} O(1). A modification copies only the
+ * nodes on the path to the changed entry, O(log n), and leaves every other
+ * node shared with the bundles it was cloned from.
+ * 
+ * This fits the common pattern of a reasoner that keeps a base bundle and
+ * derives the arguments of every action from it by changing one or two
+ * keys, see {@link #with(String, Serializable)}.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public final class PersistentANES_BUNDLE implements ANES_BUNDLE {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 2709531178473160452L;
+
+	private static final int BITS = 5;
+
+	private static final int MASK = (1 << BITS) - 1;
+
+	private static final Node EMPTY = new BitmapNode(0, new Object[0]);
+
+	private transient Node root;
+
+	private transient int size;
+
+	public PersistentANES_BUNDLE() {
+		this(EMPTY, 0);
+	}
+
+	private PersistentANES_BUNDLE(Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @return a copy of the bundle sharing all of its structure, in O(1)
+	 */
+	@Override
+	public PersistentANES_BUNDLE clone() {
+		return new PersistentANES_BUNDLE(this.root, this.size);
+	}
+
+	/**
+	 * Create a copy of this bundle with one entry added or replaced. This
+	 * bundle is not modified.
+	 * 
+	 * @param key
+	 * @param val
+	 * @return the new bundle
+	 */
+	public PersistentANES_BUNDLE with(String key, Serializable val) {
+		PersistentANES_BUNDLE copy = this.clone();
+		copy.put(key, val);
+		return copy;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(String key) {
+		return this.find(key) != null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> boolean containsKey(String key, Class<T> clazz) {
+		Entry entry = this.find(key);
+		return entry != null && entry.value != null
+				&& clazz.isAssignableFrom(entry.value.getClass());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object get(String key) throws NonExistentKeyException {
+		Entry entry = this.find(key);
+		if (entry == null)
+			throw new NonExistentKeyException(key);
+		return entry.value;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T get(String key, Class<T> clazz) throws TypedRequestException,
+			NonExistentKeyException {
+		Object t = this.get(key);
+		if (t != null && !clazz.isAssignableFrom(t.getClass()))
+			throw new TypedRequestException(t.getClass(), clazz);
+
+		return clazz.cast(t);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Class<?> getType(String key) throws NonExistentKeyException {
+		return this.get(key).getClass();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Only this bundle sees the change, clones that share the old root are
+	 * not affected.
+	 */
+	@Override
+	public void put(String key, Serializable val) {
+		if (key == null)
+			throw new NullPointerException("Bundle keys may not be null");
+
+		boolean[] added = new boolean[1];
+		this.root = this.root.put(new Entry(key, hash(key), val), 0, added);
+		if (added[0])
+			this.size++;
+	}
+
+	/**
+	 * Get the number of entries in the bundle
+	 * 
+	 * @return
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	private Entry find(String key) {
+		if (key == null)
+			return null;
+		return this.root.find(key, hash(key), 0);
+	}
+
+	private static int hash(String key) {
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+
+		List<Entry> entries = new ArrayList<Entry>(this.size);
+		this.root.collect(entries);
+		out.writeInt(entries.size());
+		for (Entry entry : entries) {
+			out.writeObject(entry.key);
+			out.writeObject(entry.value);
+		}
+	}
+
+	private void readObject(ObjectInputStream in) throws IOException,
+			ClassNotFoundException {
+		in.defaultReadObject();
+
+		this.root = EMPTY;
+		this.size = 0;
+		int count = in.readInt();
+		for (int i = 0; i < count; i++)
+			this.put((String) in.readObject(), (Serializable) in.readObject());
+	}
+
+	@Override
+	public String toString() {
+		List<Entry> entries = new ArrayList<Entry>(this.size);
+		this.root.collect(entries);
+
+		StringBuilder str = new StringBuilder("ANES_BUNDLE: [");
+		for (Entry entry : entries)
+			str.append('[').append(entry.key).append(" => ")
+					.append(entry.value).append("] ");
+		return str.append(']').toString();
+	}
+
+	/**
+	 * A key value pair in the trie
+	 */
+	private static final class Entry {
+
+		final String key;
+
+		final int hash;
+
+		final Serializable value;
+
+		Entry(String key, int hash, Serializable value) {
+			this.key = key;
+			this.hash = hash;
+			this.value = value;
+		}
+
+		boolean matches(String key, int hash) {
+			return this.hash == hash
+					&& (this.key == key || this.key.equals(key));
+		}
+	}
+
+	/**
+	 * An immutable node of the trie
+	 */
+	private static abstract class Node {
+
+		/**
+		 * Find the entry of the key below this node
+		 */
+		abstract Entry find(String key, int hash, int shift);
+
+		/**
+		 * Get a node with the entry added or replaced, the node itself is not
+		 * modified
+		 */
+		abstract Node put(Entry entry, int shift, boolean[] added);
+
+		abstract void collect(List<Entry> entries);
+
+		/**
+		 * Create the node that holds two entries with different keys
+		 */
+		static Node pair(Entry a, Entry b, int shift) {
+			if (shift >= Integer.SIZE || a.hash == b.hash)
+				return new CollisionNode(new Entry[] { a, b });
+
+			int bitA = 1 << ((a.hash >>> shift) & MASK);
+			int bitB = 1 << ((b.hash >>> shift) & MASK);
+			if (bitA == bitB)
+				return new BitmapNode(bitA, new Object[] { pair(a, b, shift
+						+ BITS) });
+
+			return new BitmapNode(bitA | bitB,
+					bitA < bitB ? new Object[] { a, b } : new Object[] { b, a });
+		}
+	}
+
+	/**
+	 * A node with up to 32 children, each either an {@link Entry} or a
+	 * {@link Node}. The bitmap tells which of the 32 slots are used, the
+	 * children of the used slots are stored densely in slot order.
+	 */
+	private static final class BitmapNode extends Node {
+
+		private final int bitmap;
+
+		private final Object[] children;
+
+		BitmapNode(int bitmap, Object[] children) {
+			this.bitmap = bitmap;
+			this.children = children;
+		}
+
+		@Override
+		Entry find(String key, int hash, int shift) {
+			int bit = 1 << ((hash >>> shift) & MASK);
+			if ((this.bitmap & bit) == 0)
+				return null;
+
+			Object child = this.children[Integer.bitCount(this.bitmap
+					& (bit - 1))];
+			if (child instanceof Entry) {
+				Entry entry = (Entry) child;
+				return entry.matches(key, hash) ? entry : null;
+			}
+			return ((Node) child).find(key, hash, shift + BITS);
+		}
+
+		@Override
+		Node put(Entry entry, int shift, boolean[] added) {
+			int bit = 1 << ((entry.hash >>> shift) & MASK);
+			int index = Integer.bitCount(this.bitmap & (bit - 1));
+
+			if ((this.bitmap & bit) == 0) {
+				Object[] copy = new Object[this.children.length + 1];
+				System.arraycopy(this.children, 0, copy, 0, index);
+				copy[index] = entry;
+				System.arraycopy(this.children, index, copy, index + 1,
+						this.children.length - index);
+				added[0] = true;
+				return new BitmapNode(this.bitmap | bit, copy);
+			}
+
+			Object child = this.children[index];
+			Object replacement;
+			if (child instanceof Entry) {
+				Entry existing = (Entry) child;
+				if (existing.matches(entry.key, entry.hash)) {
+					if (existing.value == entry.value)
+						return this;
+					replacement = entry;
+				} else {
+					added[0] = true;
+					replacement = pair(existing, entry, shift + BITS);
+				}
+			} else {
+				replacement = ((Node) child).put(entry, shift + BITS, added);
+				if (replacement == child)
+					return this;
+			}
+
+			Object[] copy = this.children.clone();
+			copy[index] = replacement;
+			return new BitmapNode(this.bitmap, copy);
+		}
+
+		@Override
+		void collect(List<Entry> entries) {
+			for (Object child : this.children)
+				if (child instanceof Entry)
+					entries.add((Entry) child);
+				else
+					((Node) child).collect(entries);
+		}
+	}
+
+	/**
+	 * A node for keys with the same full hash code
+	 */
+	private static final class CollisionNode extends Node {
+
+		private final Entry[] entries;
+
+		CollisionNode(Entry[] entries) {
+			this.entries = entries;
+		}
+
+		@Override
+		Entry find(String key, int hash, int shift) {
+			for (Entry entry : this.entries)
+				if (entry.matches(key, hash))
+					return entry;
+			return null;
+		}
+
+		@Override
+		Node put(Entry entry, int shift, boolean[] added) {
+			if (entry.hash != this.entries[0].hash) {
+				// A different hash ended up here through a shared prefix,
+				// split this node off below a bitmap node
+				int bit = 1 << ((this.entries[0].hash >>> shift) & MASK);
+				return new BitmapNode(bit, new Object[] { this }).put(entry,
+						shift, added);
+			}
+
+			for (int i = 0; i < this.entries.length; i++)
+				if (this.entries[i].key.equals(entry.key)) {
+					Entry[] copy = this.entries.clone();
+					copy[i] = entry;
+					return new CollisionNode(copy);
+				}
+
+			Entry[] copy = new Entry[this.entries.length + 1];
+			System.arraycopy(this.entries, 0, copy, 0, this.entries.length);
+			copy[this.entries.length] = entry;
+			added[0] = true;
+			return new CollisionNode(copy);
+		}
+
+		@Override
+		void collect(List<Entry> entries) {
+			for (Entry entry : this.entries)
+				entries.add(entry);
+		}
+	}
+}
@@ -0,0 +1,192 @@
+/**
+ * File PooledANES_BUNDLE.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.datatypes;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+
+import eu.artemis.demanes.exceptions.NonExistentKeyException;
+import eu.artemis.demanes.exceptions.TypedRequestException;
+
+/**
+ * PooledANES_BUNDLE
+ * 
+ * A bundle that is handed out by a {@link BundlePool} and returned to it by
+ * {@link #close()}, so it can be used in a try-with-resources block:
+ * 
+ * <pre>
+ * try (PooledANES_BUNDLE args = pool.acquire()) {
+ * 	args.put(&quot;setpoint&quot;, 21.5);
+ * 	action.invoke(args);
+ * }
+ * </pre>
+ * 
+ * The bundle must not be used after it was closed, and must not be closed
+ * while anything else may still hold on to it. Clones are ordinary bundles
+ * which do not belong to the pool.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public final class PooledANES_BUNDLE implements KeyedANES_BUNDLE,
+		AutoCloseable {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 4409931764108547719L;
+
+	private final CompactANES_BUNDLE content = new CompactANES_BUNDLE();
+
+	final transient BundlePool pool;
+
+	/**
+	 * Whether the bundle is currently in the pool, guarded by the pool
+	 */
+	transient boolean released;
+
+	PooledANES_BUNDLE(BundlePool pool) {
+		this.pool = pool;
+	}
+
+	/**
+	 * Return the bundle to its pool. Closing a bundle twice has no effect.
+	 */
+	@Override
+	public void close() {
+		this.pool.release(this);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @return an unpooled copy of the bundle
+	 */
+	@Override
+	public CompactANES_BUNDLE clone() {
+		return this.content.clone();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(String key) {
+		return this.content.containsKey(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(BundleKey key) {
+		return this.content.containsKey(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> boolean containsKey(String key, Class<T> clazz) {
+		return this.content.containsKey(key, clazz);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object get(String key) throws NonExistentKeyException {
+		return this.content.get(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Object get(BundleKey key) throws NonExistentKeyException {
+		return this.content.get(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T get(String key, Class<T> clazz) throws TypedRequestException,
+			NonExistentKeyException {
+		return this.content.get(key, clazz);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T get(BundleKey key, Class<T> clazz)
+			throws TypedRequestException, NonExistentKeyException {
+		return this.content.get(key, clazz);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Class<?> getType(String key) throws NonExistentKeyException {
+		return this.content.getType(key);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void put(String key, Serializable val) {
+		this.content.put(key, val);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void put(BundleKey key, Serializable val) {
+		this.content.put(key, val);
+	}
+
+	/**
+	 * Remove all entries, when the bundle returns to the pool
+	 */
+	void clear() {
+		this.content.clear();
+	}
+
+	/**
+	 * A bundle that is sent elsewhere does not belong to the pool there
+	 * 
+	 * @return
+	 * @throws ObjectStreamException
+	 */
+	private Object writeReplace() throws ObjectStreamException {
+		return this.content;
+	}
+
+	@Override
+	public String toString() {
+		return this.content.toString();
+	}
+}
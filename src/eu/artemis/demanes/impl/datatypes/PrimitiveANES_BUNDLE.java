@@ -0,0 +1,358 @@
+/**
+ * File PrimitiveANES_BUNDLE.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.datatypes;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import eu.artemis.demanes.datatypes.ANES_BUNDLE;
+import eu.artemis.demanes.exceptions.NonExistentKeyException;
+import eu.artemis.demanes.exceptions.TypedRequestException;
+
+/**
+ * PrimitiveANES_BUNDLE
+ * 
+ * A bundle with primitive lanes for int, long and double values. Values put
+ * with {@link #putInt(String, int)}, {@link #putLong(String, long)} and
+ * {@link #putDouble(String, double)} are stored unboxed in a primitive array
+ * and can be read with the matching primitive getters without allocating.
+ * The generic accessors of {@link ANES_BUNDLE} still work for every entry,
+ * primitive values are boxed only when they are requested that way.
+ * 
+ * The entries are kept in parallel arrays which are scanned linearly, which
+ * is faster than hashing for the handful of arguments a bundle usually
+ * holds.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public final class PrimitiveANES_BUNDLE implements ANES_BUNDLE {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 6312098435771024617L;
+
+	private static final byte KIND_REF = 0;
+
+	private static final byte KIND_INT = 1;
+
+	private static final byte KIND_LONG = 2;
+
+	private static final byte KIND_DOUBLE = 3;
+
+	private static final int DEFAULT_CAPACITY = 4;
+
+	private String[] keys;
+
+	private byte[] kinds;
+
+	/**
+	 * The primitive values, doubles are stored as their raw long bits
+	 */
+	private long[] bits;
+
+	private Serializable[] refs;
+
+	private int size;
+
+	public PrimitiveANES_BUNDLE() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity
+	 *            the number of entries to reserve room for
+	 */
+	public PrimitiveANES_BUNDLE(int capacity) {
+		capacity = Math.max(1, capacity);
+		this.keys = new String[capacity];
+		this.kinds = new byte[capacity];
+		this.bits = new long[capacity];
+		this.refs = new Serializable[capacity];
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @return a shallow copy of the PrimitiveANES_BUNDLE
+	 */
+	@Override
+	public PrimitiveANES_BUNDLE clone() {
+		PrimitiveANES_BUNDLE clone = new PrimitiveANES_BUNDLE(this.size);
+		System.arraycopy(this.keys, 0, clone.keys, 0, this.size);
+		System.arraycopy(this.kinds, 0, clone.kinds, 0, this.size);
+		System.arraycopy(this.bits, 0, clone.bits, 0, this.size);
+		System.arraycopy(this.refs, 0, clone.refs, 0, this.size);
+		clone.size = this.size;
+		return clone;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public boolean containsKey(String key) {
+		return this.indexOf(key) >= 0;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> boolean containsKey(String key, Class<T> clazz) {
+		int i = this.indexOf(key);
+		if (i < 0)
+			return false;
+
+		Class<?> type = this.typeAt(i);
+		return type != null && clazz.isAssignableFrom(type);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * Primitive values are boxed on every call.
+	 */
+	@Override
+	public Object get(String key) throws NonExistentKeyException {
+		return this.valueAt(this.require(key));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public <T> T get(String key, Class<T> clazz) throws TypedRequestException,
+			NonExistentKeyException {
+		int i = this.require(key);
+		Class<?> type = this.typeAt(i);
+		if (type != null && !clazz.isAssignableFrom(type))
+			throw new TypedRequestException(type, clazz);
+
+		return clazz.cast(this.valueAt(i));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * @return the type of the value, or null if the value is null
+	 */
+	@Override
+	public Class<?> getType(String key) throws NonExistentKeyException {
+		return this.typeAt(this.require(key));
+	}
+
+	/**
+	 * Get an int value without boxing it
+	 * 
+	 * @param key
+	 * @return
+	 * @throws TypedRequestException
+	 *             if the value is not an int
+	 * @throws NonExistentKeyException
+	 */
+	public int getInt(String key) throws TypedRequestException,
+			NonExistentKeyException {
+		int i = this.require(key);
+		if (this.kinds[i] == KIND_INT)
+			return (int) this.bits[i];
+
+		return this.unbox(i, Integer.class).intValue();
+	}
+
+	/**
+	 * Get a long value without boxing it
+	 * 
+	 * @param key
+	 * @return
+	 * @throws TypedRequestException
+	 *             if the value is not a long
+	 * @throws NonExistentKeyException
+	 */
+	public long getLong(String key) throws TypedRequestException,
+			NonExistentKeyException {
+		int i = this.require(key);
+		if (this.kinds[i] == KIND_LONG)
+			return this.bits[i];
+
+		return this.unbox(i, Long.class).longValue();
+	}
+
+	/**
+	 * Get a double value without boxing it
+	 * 
+	 * @param key
+	 * @return
+	 * @throws TypedRequestException
+	 *             if the value is not a double
+	 * @throws NonExistentKeyException
+	 */
+	public double getDouble(String key) throws TypedRequestException,
+			NonExistentKeyException {
+		int i = this.require(key);
+		if (this.kinds[i] == KIND_DOUBLE)
+			return Double.longBitsToDouble(this.bits[i]);
+
+		return this.unbox(i, Double.class).doubleValue();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void put(String key, Serializable val) {
+		int i = this.slot(key);
+		this.kinds[i] = KIND_REF;
+		this.bits[i] = 0;
+		this.refs[i] = val;
+	}
+
+	/**
+	 * Put an int value without boxing it
+	 * 
+	 * @param key
+	 * @param val
+	 */
+	public void putInt(String key, int val) {
+		this.putBits(key, KIND_INT, val);
+	}
+
+	/**
+	 * Put a long value without boxing it
+	 * 
+	 * @param key
+	 * @param val
+	 */
+	public void putLong(String key, long val) {
+		this.putBits(key, KIND_LONG, val);
+	}
+
+	/**
+	 * Put a double value without boxing it
+	 * 
+	 * @param key
+	 * @param val
+	 */
+	public void putDouble(String key, double val) {
+		this.putBits(key, KIND_DOUBLE, Double.doubleToRawLongBits(val));
+	}
+
+	/**
+	 * Get the number of entries in the bundle
+	 * 
+	 * @return
+	 */
+	public int size() {
+		return this.size;
+	}
+
+	private void putBits(String key, byte kind, long val) {
+		int i = this.slot(key);
+		this.kinds[i] = kind;
+		this.bits[i] = val;
+		this.refs[i] = null;
+	}
+
+	private int indexOf(String key) {
+		for (int i = 0; i < this.size; i++)
+			if (this.keys[i].equals(key))
+				return i;
+		return -1;
+	}
+
+	private int require(String key) throws NonExistentKeyException {
+		int i = this.indexOf(key);
+		if (i < 0)
+			throw new NonExistentKeyException(key);
+		return i;
+	}
+
+	/**
+	 * Find the index of the key, or append it if it is not present
+	 */
+	private int slot(String key) {
+		if (key == null)
+			throw new NullPointerException("Bundle keys may not be null");
+
+		int i = this.indexOf(key);
+		if (i >= 0)
+			return i;
+
+		if (this.size == this.keys.length) {
+			int capacity = this.size * 2;
+			this.keys = Arrays.copyOf(this.keys, capacity);
+			this.kinds = Arrays.copyOf(this.kinds, capacity);
+			this.bits = Arrays.copyOf(this.bits, capacity);
+			this.refs = Arrays.copyOf(this.refs, capacity);
+		}
+
+		this.keys[this.size] = key;
+		return this.size++;
+	}
+
+	private Class<?> typeAt(int i) {
+		switch (this.kinds[i]) {
+		case KIND_INT:
+			return Integer.class;
+		case KIND_LONG:
+			return Long.class;
+		case KIND_DOUBLE:
+			return Double.class;
+		default:
+			return this.refs[i] == null ? null : this.refs[i].getClass();
+		}
+	}
+
+	private Object valueAt(int i) {
+		switch (this.kinds[i]) {
+		case KIND_INT:
+			return Integer.valueOf((int) this.bits[i]);
+		case KIND_LONG:
+			return Long.valueOf(this.bits[i]);
+		case KIND_DOUBLE:
+			return Double.valueOf(Double.longBitsToDouble(this.bits[i]));
+		default:
+			return this.refs[i];
+		}
+	}
+
+	/**
+	 * Get a boxed value that was put through the generic put
+	 */
+	private <T> T unbox(int i, Class<T> clazz) throws TypedRequestException {
+		Class<?> type = this.typeAt(i);
+		if (type != clazz)
+			throw new TypedRequestException(type == null ? Void.class : type,
+					clazz);
+		return clazz.cast(this.refs[i]);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder str = new StringBuilder("ANES_BUNDLE: [");
+		for (int i = 0; i < this.size; i++)
+			str.append('[').append(this.keys[i]).append(" => ")
+					.append(this.valueAt(i)).append("] ");
+		return str.append(']').toString();
+	}
+}
@@ -22,7 +22,6 @@ package eu.artemis.demanes.impl.parameterization;
 
 import java.util.HashSet;
 import java.util.Set;
-import java.util.UUID;
 
 import org.apache.log4j.Logger;
 
@@ -31,6 +30,7 @@ import eu.artemis.demanes.datatypes.ANES_URN;
 import eu.artemis.demanes.exceptions.ParameterizationException;
 import eu.artemis.demanes.exceptions.ParameterizationURNException;
 import eu.artemis.demanes.lib.ParameterizableRegistry;
+import eu.artemis.demanes.lib.impl.tracing.CorrelationId;
 import eu.artemis.demanes.logging.LogConstants;
 import eu.artemis.demanes.logging.LogEntry;
 import eu.artemis.demanes.parameterization.Parameterizable;
@@ -107,17 +107,23 @@ public final class ParameterizationBroker implements ParameterizableRegistry,
 	 */
 	@Override
 	public Object getParameter(ANES_URN urn) throws ParameterizationException {
-		UUID uid = UUID.randomUUID();
-		logger.trace(new LogEntry(this.getClass().getName(),
-				LogConstants.LOG_LEVEL_TRACE, "Param", "Getting Parameter "
-						+ urn + " from broker (" + uid + ")"));
+		long cid = CorrelationId.NONE;
+		if (logger.isTraceEnabled()) {
+			cid = CorrelationId.current();
+			logger.trace(new LogEntry(this.getClass().getName(),
+					LogConstants.LOG_LEVEL_TRACE, "Param", "Getting Parameter "
+							+ urn + " from broker ("
+							+ CorrelationId.toString(cid) + ")"));
+		}
 
 		Parameterizable parameterizable = findURNOwner(urn);
 		if (parameterizable != null) {
 			Object response = parameterizable.getParameter(urn);
-			logger.trace(new LogEntry(this.getClass().getName(),
-					LogConstants.LOG_LEVEL_TRACE, "Param", "Parameter " + urn
-							+ " obtained (" + uid + ")"));
+			if (logger.isTraceEnabled())
+				logger.trace(new LogEntry(this.getClass().getName(),
+						LogConstants.LOG_LEVEL_TRACE, "Param", "Parameter "
+								+ urn + " obtained ("
+								+ CorrelationId.toString(cid) + ")"));
 
 			return response;
 		} else {
@@ -141,10 +147,13 @@ public final class ParameterizationBroker implements ParameterizableRegistry,
 	 */
 	@Override
 	public Set<ANES_URN> listParameters() {
-		UUID uid = UUID.randomUUID();
-		logger.trace(new LogEntry(this.getClass().getName(),
-				LogConstants.LOG_LEVEL_TRACE, "Param", "Listing parameters ("
-						+ uid + ")"));
+		long cid = CorrelationId.NONE;
+		if (logger.isTraceEnabled()) {
+			cid = CorrelationId.current();
+			logger.trace(new LogEntry(this.getClass().getName(),
+					LogConstants.LOG_LEVEL_TRACE, "Param",
+					"Listing parameters (" + CorrelationId.toString(cid) + ")"));
+		}
 
 		final Set<ANES_URN> urnList = new HashSet<ANES_URN>();
 		for (Parameterizable it : this.parSet)
@@ -157,9 +166,10 @@ public final class ParameterizationBroker implements ParameterizableRegistry,
 				// Do nothing
 			}
 
-		logger.trace(new LogEntry(this.getClass().getName(),
-				LogConstants.LOG_LEVEL_TRACE, "Param", "Finished listing ("
-						+ uid + ")"));
+		if (logger.isTraceEnabled())
+			logger.trace(new LogEntry(this.getClass().getName(),
+					LogConstants.LOG_LEVEL_TRACE, "Param", "Finished listing ("
+							+ CorrelationId.toString(cid) + ")"));
 		return urnList;
 	}
 
@@ -186,10 +196,14 @@ public final class ParameterizationBroker implements ParameterizableRegistry,
 	@Override
 	public void setParameter(ANES_URN urn, Object value)
 			throws ParameterizationException {
-		UUID uid = UUID.randomUUID();
-		logger.trace(new LogEntry(this.getClass().getName(),
-				LogConstants.LOG_LEVEL_TRACE, "Param", "Setting parameter "
-						+ urn + " from broker (" + uid + ")"));
+		long cid = CorrelationId.NONE;
+		if (logger.isTraceEnabled()) {
+			cid = CorrelationId.current();
+			logger.trace(new LogEntry(this.getClass().getName(),
+					LogConstants.LOG_LEVEL_TRACE, "Param", "Setting parameter "
+							+ urn + " from broker ("
+							+ CorrelationId.toString(cid) + ")"));
+		}
 
 		Parameterizable parameterizable = findURNOwner(urn);
 		if (parameterizable != null) {
@@ -201,9 +215,10 @@ public final class ParameterizationBroker implements ParameterizableRegistry,
 			throw new ParameterizationURNException();
 		}
 
-		logger.trace(new LogEntry(this.getClass().getName(),
-				LogConstants.LOG_LEVEL_TRACE, "Param", "Parameter set (" + uid
-						+ ")"));
+		if (logger.isTraceEnabled())
+			logger.trace(new LogEntry(this.getClass().getName(),
+					LogConstants.LOG_LEVEL_TRACE, "Param", "Parameter set ("
+							+ CorrelationId.toString(cid) + ")"));
 	}
 
 	/**
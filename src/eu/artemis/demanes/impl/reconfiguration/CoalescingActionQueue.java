@@ -0,0 +1,204 @@
+/**
+ * File CoalescingActionQueue.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.reconfiguration;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import eu.artemis.demanes.datatypes.ANES_BUNDLE;
+import eu.artemis.demanes.datatypes.ANES_URN;
+import eu.artemis.demanes.exceptions.ActionInvocationException;
+import eu.artemis.demanes.logging.LogConstants;
+import eu.artemis.demanes.logging.LogEntry;
+import eu.artemis.demanes.reconfiguration.Action;
+
+/**
+ * CoalescingActionQueue
+ * 
+ * Invokes actions one by one on a dedicated worker thread. Every action has at
+ * most one pending invocation: invoking an action that is still pending
+ * replaces its arguments, so only the latest arguments are used. The queue
+ * therefore never holds more invocations than there are actions, no matter
+ * how often they are invoked.
+ * 
+ * The arguments are cloned when the invocation is queued, the caller may
+ * reuse its bundle.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+final class CoalescingActionQueue {
+
+	private final static Logger logger = Logger.getLogger("dmns:log");
+
+	private final ConcurrentHashMap<ANES_URN, Pending> pending = new ConcurrentHashMap<ANES_URN, Pending>();
+
+	/**
+	 * The order in which the pending actions are invoked
+	 */
+	private final LinkedBlockingQueue<ANES_URN> ready = new LinkedBlockingQueue<ANES_URN>();
+
+	private final AtomicLong coalesced = new AtomicLong();
+
+	private final InvocationRecorder recorder;
+
+	private volatile Thread worker;
+
+	private volatile boolean stopped;
+
+	/**
+	 * @param recorder
+	 *            records the invocations
+	 */
+	CoalescingActionQueue(InvocationRecorder recorder) {
+		this.recorder = recorder;
+	}
+
+	/**
+	 * Queue an invocation of an action
+	 * 
+	 * @param id
+	 * @param action
+	 * @param arguments
+	 * @throws RejectedExecutionException
+	 *             if the queue is stopped
+	 */
+	void offer(ANES_URN id, Action action, ANES_BUNDLE arguments) {
+		if (this.stopped)
+			throw new RejectedExecutionException("The action queue is stopped");
+
+		Pending invocation = new Pending(action, arguments == null ? null
+				: arguments.clone());
+
+		if (this.pending.put(id, invocation) == null)
+			this.ready.offer(id);
+		else
+			this.coalesced.incrementAndGet();
+
+		if (this.worker == null)
+			this.startWorker();
+	}
+
+	/**
+	 * @return the number of invocations that were replaced by a later one
+	 */
+	long getCoalesced() {
+		return this.coalesced.get();
+	}
+
+	/**
+	 * @return the number of pending invocations
+	 */
+	int size() {
+		return this.pending.size();
+	}
+
+	/**
+	 * Drop the pending invocation of an action that is no longer available
+	 * 
+	 * @param id
+	 * @param action
+	 */
+	void cancel(ANES_URN id, Action action) {
+		Pending invocation = this.pending.get(id);
+		if (invocation != null && invocation.action == action)
+			this.pending.remove(id, invocation);
+	}
+
+	/**
+	 * Stop the worker and drop the pending invocations. Later invocations are
+	 * rejected.
+	 */
+	synchronized void stop() {
+		this.stopped = true;
+		if (this.worker != null) {
+			this.worker.interrupt();
+			this.worker = null;
+		}
+
+		this.ready.clear();
+		this.pending.clear();
+	}
+
+	private synchronized void startWorker() {
+		if (this.worker != null || this.stopped)
+			return;
+
+		this.worker = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				work();
+			}
+		}, "dmns-actuator");
+		this.worker.setDaemon(true);
+		this.worker.start();
+	}
+
+	private void work() {
+		while (!Thread.currentThread().isInterrupted()) {
+			ANES_URN id;
+			try {
+				id = this.ready.take();
+			} catch (InterruptedException e) {
+				break;
+			}
+
+			// Taking the arguments after the id lets later ones replace them
+			Pending invocation = this.pending.remove(id);
+			if (invocation == null)
+				continue;
+
+			long start = System.nanoTime();
+			boolean failed = true;
+			try {
+				invocation.action.invoke(invocation.arguments);
+				failed = false;
+			} catch (ActionInvocationException e) {
+				logger.error(new LogEntry(this.getClass().getName(),
+						LogConstants.LOG_LEVEL_ERROR, "Reconfig",
+						"Queued invocation of " + id + " failed: " + e));
+			} catch (RuntimeException e) {
+				logger.error(new LogEntry(this.getClass().getName(),
+						LogConstants.LOG_LEVEL_ERROR, "Reconfig",
+						"Queued invocation of " + id + " failed: " + e));
+			} finally {
+				this.recorder.record(id, System.nanoTime() - start, failed);
+			}
+		}
+	}
+
+	private static final class Pending {
+
+		final Action action;
+
+		final ANES_BUNDLE arguments;
+
+		Pending(Action action, ANES_BUNDLE arguments) {
+			this.action = action;
+			this.arguments = arguments;
+		}
+	}
+}
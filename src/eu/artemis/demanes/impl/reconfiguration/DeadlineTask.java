@@ -0,0 +1,129 @@
+/**
+ * File DeadlineTask.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.reconfiguration;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * DeadlineTask
+ * 
+ * A task that is cancelled, interrupting the thread running it, when its
+ * deadline passes. Waiting callers then get an ExecutionException caused by
+ * the exception of {@link #timedOut()} instead of a CancellationException.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+abstract class DeadlineTask<V> extends FutureTask<V> {
+
+	private volatile boolean expired;
+
+	private volatile Future<?> timer;
+
+	DeadlineTask(Callable<V> callable) {
+		super(callable);
+	}
+
+	/**
+	 * @return the exception to fail the task with when the deadline passes
+	 */
+	protected abstract Exception timedOut();
+
+	/**
+	 * Start the deadline of the task
+	 * 
+	 * @param scheduler
+	 * @param timeout
+	 * @param unit
+	 *            the unit of the timeout, or null for no deadline
+	 */
+	void schedule(ScheduledExecutorService scheduler, long timeout,
+			TimeUnit unit) {
+		if (unit == null)
+			return;
+
+		this.timer = scheduler.schedule(new Runnable() {
+			@Override
+			public void run() {
+				expire();
+			}
+		}, timeout, unit);
+
+		// The task may have finished before the timer was set
+		if (this.isDone())
+			this.timer.cancel(false);
+	}
+
+	/**
+	 * Fail the task without running it
+	 * 
+	 * @param cause
+	 */
+	void fail(Exception cause) {
+		this.setException(cause);
+	}
+
+	private void expire() {
+		this.expired = true;
+		if (!this.cancel(true))
+			this.expired = false;
+	}
+
+	@Override
+	protected void done() {
+		Future<?> t = this.timer;
+		if (t != null)
+			t.cancel(false);
+	}
+
+	@Override
+	public V get() throws InterruptedException, ExecutionException {
+		try {
+			return super.get();
+		} catch (CancellationException e) {
+			throw this.translate(e);
+		}
+	}
+
+	@Override
+	public V get(long timeout, TimeUnit unit) throws InterruptedException,
+			ExecutionException, TimeoutException {
+		try {
+			return super.get(timeout, unit);
+		} catch (CancellationException e) {
+			throw this.translate(e);
+		}
+	}
+
+	private ExecutionException translate(CancellationException e) {
+		if (!this.expired)
+			throw e;
+		return new ExecutionException(this.timedOut());
+	}
+}
@@ -20,23 +20,58 @@
  */
 package eu.artemis.demanes.impl.reconfiguration;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
-import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
+import org.osgi.framework.Constants;
 
+import aQute.bnd.annotation.component.Activate;
 import aQute.bnd.annotation.component.Component;
+import aQute.bnd.annotation.component.ConfigurationPolicy;
 import aQute.bnd.annotation.component.Deactivate;
+import aQute.bnd.annotation.component.Modified;
 import aQute.bnd.annotation.component.Reference;
+import aQute.bnd.annotation.metatype.Configurable;
 import eu.artemis.demanes.datatypes.ANES_BUNDLE;
 import eu.artemis.demanes.datatypes.ANES_URN;
 import eu.artemis.demanes.exceptions.ActionInvocationException;
 import eu.artemis.demanes.exceptions.InexistentActionID;
 import eu.artemis.demanes.exceptions.InexistentObservationID;
 import eu.artemis.demanes.exceptions.ObservationInvocationException;
+import eu.artemis.demanes.lib.impl.reconfiguration.AsyncORAProvider;
+import eu.artemis.demanes.lib.impl.reconfiguration.BatchObservationProvider;
+import eu.artemis.demanes.lib.impl.reconfiguration.CachePolicy;
+import eu.artemis.demanes.lib.impl.reconfiguration.CacheStatistics;
+import eu.artemis.demanes.lib.impl.reconfiguration.CachingObservationProvider;
+import eu.artemis.demanes.lib.impl.reconfiguration.InvocationMetrics;
+import eu.artemis.demanes.lib.impl.reconfiguration.ObservationBatch;
+import eu.artemis.demanes.lib.impl.reconfiguration.ObservationHistory;
+import eu.artemis.demanes.lib.impl.reconfiguration.QueuedActionProvider;
+import eu.artemis.demanes.lib.impl.reconfiguration.SnapshotObservationProvider;
+import eu.artemis.demanes.lib.impl.tracing.CorrelationId;
 import eu.artemis.demanes.logging.LogConstants;
 import eu.artemis.demanes.logging.LogEntry;
 import eu.artemis.demanes.reconfiguration.Action;
@@ -48,6 +83,7 @@ import eu.artemis.demanes.reconfiguration.ObservationProvider;
 import eu.artemis.demanes.reconfiguration.Observer;
 import eu.artemis.demanes.reconfiguration.Reasoner;
 import eu.artemis.demanes.reconfiguration.TriggerPolicy;
+import eu.artemis.demanes.reconfiguration.Triggerable;
 
 /**
  * DefaultORAMediator
@@ -55,51 +91,215 @@ import eu.artemis.demanes.reconfiguration.TriggerPolicy;
  * This is merely an example class implementing all interfaces to create a valid
  * ORAMediator.
  * 
+ * The mediator is safe for concurrent use. Actuators and observers are
+ * (un)registered by the SCR threads while reasoners use the mediator from the
+ * threads of the trigger policy. Changes are serialized by a lock, lookups
+ * read concurrent maps without locking.
+ * 
+ * Batches of observations are read in parallel on a small, bounded pool of
+ * threads, which is created when the first batch is read. When the pool is
+ * saturated the observations that do not fit fail with an error of their
+ * own, rather than being read by the caller past its deadline. The
+ * background refreshes of the cache have a separate, smaller pool, so that
+ * batches can not hold them up. Once the mediator is stopped, no new threads
+ * are started and calls that need them fail.
+ * 
+ * Observations can be cached per URN, see {@link CachePolicy}. The policies
+ * are set in the configuration of the component, or with
+ * {@link #setCachePolicy(ANES_URN, CachePolicy)}. A new configuration
+ * replaces all policies.
+ * 
+ * The reasoner is not registered with the trigger policy directly, but
+ * wrapped in a reasoning cycle that gives it a consistent snapshot of the
+ * observations, see {@link SnapshotObservationProvider}.
+ * 
+ * Asynchronous calls run on their own pool of threads, so that a hung
+ * observer or actuator can not take the threads of batches or of the trigger
+ * policy. The size of the pool is set in the configuration. A single timer
+ * thread enforces the deadlines of the calls.
+ * 
+ * Several actuators or observers may provide the same URN. The one with the
+ * highest service ranking is used, or the first registered one when the
+ * rankings are equal. When it is unregistered the next one takes over.
+ * 
+ * The calls of every observation and action are counted and timed. The
+ * metrics are observations themselves, see {@link InvocationMetrics}. Only
+ * the calls of the observers count, values served from the cache are
+ * counted by the statistics of the cache instead.
+ * 
+ * The values of numeric observations are kept in a history of fixed size,
+ * see {@link ObservationHistory}. The size is set in the configuration. A
+ * value is added when it is read from the observer, a value served from the
+ * cache is not added again.
+ * 
+ * Actions can be queued, see {@link QueuedActionProvider}. When queued
+ * actions are enabled in the configuration, {@link #invoke(ANES_URN, ANES_BUNDLE)}
+ * queues the invocation as well, and only fails when the action is unknown.
+ * Asynchronous invocations are never queued.
+ * 
  * @author DEMANES
  * @version 0.1
  * @since 27 nov. 2013
  * 
  */
-@Component(immediate = true, provide = { ORAMediator.class })
+@Component(immediate = true, provide = { ORAMediator.class }, designate = ORAMediatorConfiguration.class, configurationPolicy = ConfigurationPolicy.optional)
 public final class DefaultORAMediator implements ObservationProvider,
-		ActionProvider, ORAMediator {
+		BatchObservationProvider, CachingObservationProvider,
+		SnapshotObservationProvider, ObservationHistory, AsyncORAProvider,
+		ActionProvider, QueuedActionProvider, ORAMediator {
+
+	/**
+	 * The number of threads reading the observations of batches
+	 */
+	private static final int BATCH_THREADS = 4;
+
+	/**
+	 * The number of observations that may wait for a batch thread, beyond
+	 * that they fail
+	 */
+	private static final int BATCH_QUEUE_SIZE = 256;
+
+	/**
+	 * The number of threads refreshing cached observations in the background
+	 */
+	private static final int REFRESH_THREADS = 2;
+
+	/**
+	 * The number of refreshes that may wait, beyond that the cache keeps
+	 * serving its current value
+	 */
+	private static final int REFRESH_QUEUE_SIZE = 64;
 
 	private final Logger logger = Logger.getLogger("dmns:log");
 
-	private final Map<ANES_URN, Action> actionMap;
+	private ExecutorService batchExecutor;
+
+	private ExecutorService refreshExecutor;
+
+	private ThreadPoolExecutor asyncExecutor;
+
+	private ScheduledThreadPoolExecutor deadlineTimer;
+
+	/**
+	 * Set by {@link #stop()}, after which no executor is created anymore.
+	 * Guarded by this.
+	 */
+	private boolean stopped;
+
+	private int asyncThreads = Integer
+			.parseInt(DefaultORAMediatorConfiguration.DEFAULT_ASYNC_THREADS);
+
+	/**
+	 * Every call of an observer goes through {@link #load(ANES_URN, Observation)}
+	 */
+	private final ObservationCache cache = new ObservationCache(
+			new ObservationCache.Loader() {
+				@Override
+				public Object load(ANES_URN id, Observation observation)
+						throws ObservationInvocationException {
+					return DefaultORAMediator.this.load(id, observation);
+				}
+			});
+
+	private final InvocationRecorder recorder = new InvocationRecorder();
+
+	private final HistoryStore history = new HistoryStore(
+			Integer.parseInt(DefaultORAMediatorConfiguration.DEFAULT_HISTORY_SIZE));
+
+	private final CoalescingActionQueue actionQueue = new CoalescingActionQueue(
+			this.recorder);
+
+	private volatile boolean queuedActions;
+
+	/**
+	 * The deadline of the reads at the start of a cycle, in milliseconds
+	 */
+	private volatile long snapshotTimeout = Long
+			.parseLong(DefaultORAMediatorConfiguration.DEFAULT_SNAPSHOT_TIMEOUT);
+
+	/**
+	 * Runs the background refreshes of the cache on the refresh threads
+	 */
+	private final Executor backgroundExecutor = new Executor() {
+		@Override
+		public void execute(Runnable command) {
+			getRefreshExecutor().execute(CorrelationId.wrap(command));
+		}
+	};
+
+	private final ConcurrentHashMap<ANES_URN, Action> actionMap;
+
+	/**
+	 * The registered actuators, with the actions they registered
+	 */
+	private final ConcurrentHashMap<Actuator, Set<Action>> actuatorMap;
+
+	private final ConcurrentHashMap<ANES_URN, Observation> observationMap;
+
+	/**
+	 * The registered observers, with the observations they registered
+	 */
+	private final ConcurrentHashMap<Observer, Set<Observation>> observerMap;
+
+	private final ProviderIndex<Action> actionIndex;
+
+	private final ProviderIndex<Observation> observationIndex;
 
-	private final Set<Actuator> actuatorSet;
+	private volatile Reasoner reasoner;
+
+	/**
+	 * The reasoner, wrapped in a reasoning cycle
+	 */
+	private volatile Triggerable cycleTrigger;
 
-	private final Map<ANES_URN, Observation> observationMap;
+	/**
+	 * The state of the reasoning cycle the current thread is running
+	 */
+	private final ThreadLocal<Cycle> cycle = new ThreadLocal<Cycle>();
 
-	private final Set<Observer> observerSet;
+	private volatile Set<ANES_URN> declaredObservations = Collections
+			.emptySet();
 
-	private Reasoner reasoner;
+	private volatile Set<ANES_URN> lastCycleObservations = Collections
+			.emptySet();
 
-	private TriggerPolicy triggerPolicy;
+	private volatile TriggerPolicy triggerPolicy;
 
 	public DefaultORAMediator() {
-		this.actuatorSet = new HashSet<Actuator>();
-		this.observerSet = new HashSet<Observer>();
+		this.actuatorMap = new ConcurrentHashMap<Actuator, Set<Action>>();
+		this.observerMap = new ConcurrentHashMap<Observer, Set<Observation>>();
 
-		this.actionMap = new HashMap<ANES_URN, Action>();
-		this.observationMap = new HashMap<ANES_URN, Observation>();
+		this.actionMap = new ConcurrentHashMap<ANES_URN, Action>();
+		this.observationMap = new ConcurrentHashMap<ANES_URN, Observation>();
+
+		this.actionIndex = new ProviderIndex<Action>(this.actionMap);
+		this.observationIndex = new ProviderIndex<Observation>(
+				this.observationMap);
 	}
 
 	/**
 	 * {@inheritDoc}
+	 * 
+	 * @return a snapshot of the currently available actions
 	 */
 	@Override
 	public Set<ANES_URN> getActions() {
-		return this.actionMap.keySet();
+		return Collections.unmodifiableSet(new HashSet<ANES_URN>(this.actionMap
+				.keySet()));
 	}
 
 	/**
 	 * {@inheritDoc}
+	 * 
+	 * @return a snapshot of the currently available observations, including
+	 *         the metrics
 	 */
 	@Override
 	public Set<ANES_URN> getObservations() {
-		return this.observationMap.keySet();
+		Set<ANES_URN> observations = new HashSet<ANES_URN>(
+				this.observationMap.keySet());
+		observations.addAll(this.recorder.getObservations());
+		return Collections.unmodifiableSet(observations);
 	}
 
 	/**
@@ -108,49 +308,207 @@ public final class DefaultORAMediator implements ObservationProvider,
 	@Override
 	public Object getValue(ANES_URN id) throws InexistentObservationID,
 			ObservationInvocationException {
-		UUID uid = UUID.randomUUID();
-		logger.trace(new LogEntry(this.getClass().getName(),
-				LogConstants.LOG_LEVEL_TRACE, "Reconfig", "Getting value " + id
-						+ " (" + uid + ")"));
-
-		if (observationMap.containsKey(id)) {
-			Object value = observationMap.get(id).getValue();
+		long cid = CorrelationId.NONE;
+		if (logger.isTraceEnabled()) {
+			cid = CorrelationId.current();
 			logger.trace(new LogEntry(this.getClass().getName(),
-					LogConstants.LOG_LEVEL_TRACE, "Reconfig", "Obtained value "
-							+ id + ": " + value + " (" + uid + ")"));
+					LogConstants.LOG_LEVEL_TRACE, "Reconfig", "Getting value "
+							+ id + " (" + CorrelationId.toString(cid) + ")"));
+		}
+
+		if (InvocationMetrics.isMetrics(id)) {
+			ANES_BUNDLE metrics = this.recorder.read(id);
+			if (metrics == null)
+				throw new InexistentObservationID(id);
+			return metrics;
+		}
+
+		Cycle current = this.cycle.get();
+		if (current != null && id != null) {
+			current.used.add(id);
+			if (current.values.containsKey(id))
+				return current.values.get(id);
+			Exception error = current.errors.get(id);
+			if (error instanceof ObservationInvocationException)
+				throw (ObservationInvocationException) error;
+		}
+
+		// A single lookup, the observation may be removed concurrently
+		Observation observation = id == null ? null : observationMap.get(id);
+		if (observation != null) {
+			Object value;
+			try {
+				value = this.read(id, observation);
+			} catch (ObservationInvocationException e) {
+				if (current != null)
+					current.errors.put(id, e);
+				throw e;
+			}
+
+			// Serve the same value for the rest of the cycle
+			if (current != null)
+				current.values.put(id, value);
+
+			if (logger.isTraceEnabled())
+				logger.trace(new LogEntry(this.getClass().getName(),
+						LogConstants.LOG_LEVEL_TRACE, "Reconfig",
+						"Obtained value " + id + ": " + value + " ("
+								+ CorrelationId.toString(cid) + ")"));
 
 			return value;
 		} else {
-			logger.trace(new LogEntry(this.getClass().getName(),
-					LogConstants.LOG_LEVEL_TRACE, "Reconfig",
-					"Attempt to get unknown value " + id));
+			if (logger.isTraceEnabled())
+				logger.trace(new LogEntry(this.getClass().getName(),
+						LogConstants.LOG_LEVEL_TRACE, "Reconfig",
+						"Attempt to get unknown value " + id + " ("
+								+ CorrelationId.toString(cid) + ")"));
 
 			throw new InexistentObservationID(id);
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void setCachePolicy(ANES_URN id, CachePolicy policy) {
+		logger.debug(new LogEntry(this.getClass().getName(),
+				LogConstants.LOG_LEVEL_DEBUG, "Config", "Cache policy of " + id
+						+ " set to " + policy));
+
+		this.cache.setPolicy(id, policy);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public CacheStatistics getCacheStatistics(ANES_URN id) {
+		return this.cache.getStatistics(id);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getHistory(ANES_URN id, long from, long to, long[] times,
+			double[] values) {
+		return this.history.query(id, from, to, times, values);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int getHistorySize(ANES_URN id) {
+		return this.history.size(id);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void declareObservations(Set<ANES_URN> ids) {
+		this.declaredObservations = ids == null ? Collections
+				.<ANES_URN> emptySet() : Collections
+				.unmodifiableSet(new HashSet<ANES_URN>(ids));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ObservationBatch getSnapshot() {
+		Cycle current = this.cycle.get();
+		if (current == null)
+			return null;
+
+		return new ObservationBatch(new HashMap<ANES_URN, Object>(
+				current.values), new HashMap<ANES_URN, Exception>(
+				current.errors));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ObservationBatch getValues(Set<ANES_URN> ids) {
+		return this.readBatch(ids, 0, null);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ObservationBatch getValues(Set<ANES_URN> ids, long timeout,
+			TimeUnit unit) {
+		return this.readBatch(ids, timeout, unit);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
 	public void invoke(ANES_URN id, ANES_BUNDLE arguments)
 			throws ActionInvocationException, InexistentActionID {
-		UUID uid = UUID.randomUUID();
-		logger.trace(new LogEntry(this.getClass().getName(),
-				LogConstants.LOG_LEVEL_TRACE, "Reconfig", "Invoking action "
-						+ id + " (" + uid + ")"));
-
-		if (actionMap.containsKey(id)) {
-			this.actionMap.get(id).invoke(arguments);
-			
+		this.invoke(id, arguments, this.queuedActions);
+	}
+
+	/**
+	 * Invoke an action, or queue the invocation
+	 * 
+	 * @param id
+	 * @param arguments
+	 * @param queue
+	 *            whether to queue the invocation
+	 * @throws ActionInvocationException
+	 * @throws InexistentActionID
+	 */
+	private void invoke(ANES_URN id, ANES_BUNDLE arguments, boolean queue)
+			throws ActionInvocationException, InexistentActionID {
+		long cid = CorrelationId.NONE;
+		if (logger.isTraceEnabled()) {
+			cid = CorrelationId.current();
 			logger.trace(new LogEntry(this.getClass().getName(),
-					LogConstants.LOG_LEVEL_TRACE, "Reconfig", "Finished invoking action "
-							+ id + " (" + uid + ")"));
+					LogConstants.LOG_LEVEL_TRACE, "Reconfig", "Invoking action "
+							+ id + " (" + CorrelationId.toString(cid) + ")"));
+		}
+
+		Action action = id == null ? null : this.actionMap.get(id);
+		if (action != null && queue) {
+			try {
+				this.actionQueue.offer(id, action, arguments);
+			} catch (RejectedExecutionException e) {
+				throw new ActionInvocationException(id, e);
+			}
+
+			if (logger.isTraceEnabled())
+				logger.trace(new LogEntry(this.getClass().getName(),
+						LogConstants.LOG_LEVEL_TRACE, "Reconfig",
+						"Queued action " + id + " ("
+								+ CorrelationId.toString(cid) + ")"));
+		} else if (action != null) {
+			long start = System.nanoTime();
+			boolean failed = true;
+			try {
+				action.invoke(arguments);
+				failed = false;
+			} finally {
+				this.recorder.record(id, System.nanoTime() - start, failed);
+			}
+
+			if (logger.isTraceEnabled())
+				logger.trace(new LogEntry(this.getClass().getName(),
+						LogConstants.LOG_LEVEL_TRACE, "Reconfig",
+						"Finished invoking action " + id + " ("
+								+ CorrelationId.toString(cid) + ")"));
 		}
 		else {
 			logger.error(new LogEntry(this.getClass().getName(),
 					LogConstants.LOG_LEVEL_ERROR, "Reconfig",
-					"Attempt to invoke unknown Action " + id + " (" + uid + ")"));
+					"Attempt to invoke unknown Action " + id + " ("
+							+ CorrelationId.toString(cid != CorrelationId.NONE ? cid
+									: CorrelationId.current()) + ")"));
 			throw new InexistentActionID(id);
 		}
 	}
@@ -159,33 +517,163 @@ public final class DefaultORAMediator implements ObservationProvider,
 	 * {@inheritDoc}
 	 */
 	@Override
-	@Reference(type = '*')
+	public void invokeQueued(ANES_URN id, ANES_BUNDLE arguments)
+			throws ActionInvocationException, InexistentActionID {
+		this.invoke(id, arguments, true);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Future<Object> getValueAsync(final ANES_URN id, long timeout,
+			TimeUnit unit) {
+		DeadlineTask<Object> task = new DeadlineTask<Object>(
+				CorrelationId.wrap(new Callable<Object>() {
+					@Override
+					public Object call() throws Exception {
+						return getValue(id);
+					}
+				})) {
+			@Override
+			protected Exception timedOut() {
+				return new ObservationInvocationException(id,
+						new TimeoutException(
+								"Observation did not finish in time"));
+			}
+		};
+
+		return this.submit(task, timeout, unit);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Future<Void> invokeAsync(final ANES_URN id, ANES_BUNDLE arguments,
+			long timeout, TimeUnit unit) {
+		// The caller may reuse its bundle as soon as the call returns
+		final ANES_BUNDLE copy = arguments == null ? null : arguments.clone();
+		DeadlineTask<Void> task = new DeadlineTask<Void>(
+				CorrelationId.wrap(new Callable<Void>() {
+					@Override
+					public Void call() throws Exception {
+						// Not queued, the future completes when it has run
+						invoke(id, copy, false);
+						return null;
+					}
+				})) {
+			@Override
+			protected Exception timedOut() {
+				return new ActionInvocationException(id, new TimeoutException(
+						"Action did not finish in time"));
+			}
+		};
+
+		return this.submit(task, timeout, unit);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * 
+	 * The actuator is registered without a ranking
+	 */
+	@Override
 	public void registerActuator(Actuator a) {
+		this.registerActuator(a, 0);
+	}
+
+	/**
+	 * Register an actuator with the ranking of its service
+	 * 
+	 * @param a
+	 * @param properties
+	 */
+	@Reference(type = '*', unbind = "unbindActuator")
+	public void bindActuator(Actuator a, Map<String, Object> properties) {
+		this.registerActuator(a, ranking(properties));
+	}
+
+	public void unbindActuator(Actuator a, Map<String, Object> properties) {
+		this.unregisterActuator(a);
+	}
+
+	/**
+	 * Register an actuator. Its actions replace those of actuators with a
+	 * lower ranking.
+	 * 
+	 * @param a
+	 * @param ranking
+	 */
+	public synchronized void registerActuator(Actuator a, int ranking) {
 		logger.debug(new LogEntry(this.getClass().getName(),
 				LogConstants.LOG_LEVEL_DEBUG, "Reference",
-				"Registering Actuator " + a));
+				"Registering Actuator " + a + " with ranking " + ranking));
 
-		if (this.actuatorSet.add(a)) {
-			// If the set updated, add the actions to the actionMap
-			for (Action action : a.getActions())
-				actionMap.put(action.getActionID(), action);
+		if (!this.actuatorMap.containsKey(a)) {
+			// Remember the actions, to remove the same ones later
+			Set<Action> actions = new HashSet<Action>(a.getActions());
+			this.actuatorMap.put(a, actions);
+			for (Action action : actions)
+				this.actionIndex.add(action.getActionID(), action, ranking);
 		}
 	}
 
 	/**
 	 * {@inheritDoc}
+	 * 
+	 * The observer is registered without a ranking
 	 */
 	@Override
-	@Reference(type = '*')
 	public void registerObserver(Observer o) {
+		this.registerObserver(o, 0);
+	}
+
+	/**
+	 * Register an observer with the ranking of its service
+	 * 
+	 * @param o
+	 * @param properties
+	 */
+	@Reference(type = '*', unbind = "unbindObserver")
+	public void bindObserver(Observer o, Map<String, Object> properties) {
+		this.registerObserver(o, ranking(properties));
+	}
+
+	public void unbindObserver(Observer o, Map<String, Object> properties) {
+		this.unregisterObserver(o);
+	}
+
+	/**
+	 * Register an observer. Its observations replace those of observers with
+	 * a lower ranking.
+	 * 
+	 * @param o
+	 * @param ranking
+	 */
+	public synchronized void registerObserver(Observer o, int ranking) {
 		logger.debug(new LogEntry(this.getClass().getName(),
 				LogConstants.LOG_LEVEL_DEBUG, "Reference",
-				"Registering Observer " + o));
+				"Registering Observer " + o + " with ranking " + ranking));
+
+		if (!this.observerMap.containsKey(o)) {
+			// Remember the observations, to remove the same ones later
+			Set<Observation> observations = new HashSet<Observation>(
+					o.getObservations());
+			this.observerMap.put(o, observations);
+			for (Observation observation : observations) {
+				ANES_URN id = observation.getObservationID();
+				if (InvocationMetrics.isMetrics(id)) {
+					logger.warn(new LogEntry(this.getClass().getName(),
+							LogConstants.LOG_LEVEL_WARN, "Reference",
+							"Ignoring observation " + id + " of " + o
+									+ " in the reserved namespace"));
+					continue;
+				}
 
-		if (this.observerSet.add(o)) {
-			// If the set updated, add the observations to the observationMap
-			for (Observation observation : o.getObservations())
-				observationMap.put(observation.getObservationID(), observation);
+				if (this.observationIndex.add(id, observation, ranking))
+					this.cache.invalidate(id);
+			}
 		}
 	}
 
@@ -194,14 +682,14 @@ public final class DefaultORAMediator implements ObservationProvider,
 	 */
 	@Override
 	@Reference
-	public void setReasoner(Reasoner r) {
+	public synchronized void setReasoner(Reasoner r) {
 		logger.debug(new LogEntry(this.getClass().getName(),
 				LogConstants.LOG_LEVEL_DEBUG, "Reference", "Setting Reasoner "
 						+ r));
 
 		// First unregister the current reasoner from the triggerPolicy
 		if (this.triggerPolicy != null)
-			this.triggerPolicy.unregisterTriggerable(this.reasoner);
+			this.triggerPolicy.unregisterTriggerable(this.cycleTrigger);
 
 		// Set the actuation provider of the reasoner to the current ORAMediator
 		if (r != null) {
@@ -211,10 +699,12 @@ public final class DefaultORAMediator implements ObservationProvider,
 
 		// Set current reasoner
 		this.reasoner = r;
+		this.cycleTrigger = r == null ? null : new ReasoningCycle(r);
+		this.lastCycleObservations = Collections.emptySet();
 
 		// Register the reasoner with the TriggerPolicy
 		if (this.triggerPolicy != null)
-			this.triggerPolicy.registerTriggerable(r);
+			this.triggerPolicy.registerTriggerable(this.cycleTrigger);
 	}
 
 	/**
@@ -224,7 +714,7 @@ public final class DefaultORAMediator implements ObservationProvider,
 	 */
 	@Override
 	@Reference
-	public void setTriggeringPolicy(TriggerPolicy t) {
+	public synchronized void setTriggeringPolicy(TriggerPolicy t) {
 		logger.debug(new LogEntry(this.getClass().getName(),
 				LogConstants.LOG_LEVEL_DEBUG, "Reference",
 				"Setting TriggerPolicy " + t));
@@ -232,7 +722,7 @@ public final class DefaultORAMediator implements ObservationProvider,
 		// First unregister the current reasoner from the old triggerPolicy
 		if (this.triggerPolicy != null) {
 			this.triggerPolicy.stop();
-			this.triggerPolicy.unregisterTriggerable(this.reasoner);
+			this.triggerPolicy.unregisterTriggerable(this.cycleTrigger);
 		}
 
 		// Set current reasoner
@@ -240,41 +730,109 @@ public final class DefaultORAMediator implements ObservationProvider,
 
 		// Register the reasoner with the new TriggerPolicy
 		if (this.triggerPolicy != null) {
-			this.triggerPolicy.registerTriggerable(this.reasoner);
+			this.triggerPolicy.registerTriggerable(this.cycleTrigger);
 			this.triggerPolicy.start();
 		}
 	}
 
+	@Activate
+	@Modified
+	public synchronized void updateConfig(Map<?, ?> properties) {
+		ORAMediatorConfiguration config = Configurable.createConfigurable(
+				ORAMediatorConfiguration.class, properties);
+
+		if (config == null)
+			config = new DefaultORAMediatorConfiguration();
+
+		this.setAsyncThreads(config.asyncThreads());
+		this.queuedActions = config.queuedActions();
+		this.history.setCapacity(Math.max(0, config.historySize()));
+		this.snapshotTimeout = Math.max(0, config.snapshotTimeout());
+
+		this.cache.clear();
+		String[] policies = config.observationCache();
+		if (policies == null)
+			return;
+
+		for (String entry : policies) {
+			if (entry == null || entry.trim().isEmpty())
+				continue;
+
+			// The URN itself may contain '=', the policy can not
+			int split = entry.lastIndexOf('=');
+			try {
+				if (split < 0)
+					throw new IllegalArgumentException("Missing '='");
+
+				this.setCachePolicy(
+						new ANES_URN(entry.substring(0, split).trim()),
+						CachePolicy.parse(entry.substring(split + 1)));
+			} catch (Exception e) {
+				logger.error(new LogEntry(this.getClass().getName(),
+						LogConstants.LOG_LEVEL_ERROR, "Config",
+						"Ignoring invalid cache policy " + entry + ": " + e));
+			}
+		}
+	}
+
 	@Deactivate
-	public void stop() {
+	public synchronized void stop() {
 		logger.debug(new LogEntry(this.getClass().getName(),
 				LogConstants.LOG_LEVEL_DEBUG, "LifeCycle", "Stopping module"));
 
+		this.stopped = true;
+
 		if (this.triggerPolicy != null) {
-			this.triggerPolicy.unregisterTriggerable(this.reasoner);
+			this.triggerPolicy.unregisterTriggerable(this.cycleTrigger);
 			this.triggerPolicy.stop();
 		}
+
+		if (this.batchExecutor != null) {
+			this.batchExecutor.shutdownNow();
+			this.batchExecutor = null;
+		}
+
+		if (this.refreshExecutor != null) {
+			this.refreshExecutor.shutdownNow();
+			this.refreshExecutor = null;
+		}
+
+		this.actionQueue.stop();
+
+		if (this.asyncExecutor != null) {
+			this.asyncExecutor.shutdownNow();
+			this.asyncExecutor = null;
+		}
+
+		if (this.deadlineTimer != null) {
+			this.deadlineTimer.shutdownNow();
+			this.deadlineTimer = null;
+		}
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void unregisterActuator(Actuator a) {
+	public synchronized void unregisterActuator(Actuator a) {
 		logger.debug(new LogEntry(this.getClass().getName(),
 				LogConstants.LOG_LEVEL_DEBUG, "Reference", "Removing Actuator "
 						+ a));
 
-		if (this.actuatorSet.remove(a)) {
-			// If the set updated, remove all its actions to the actionMap
-			for (Action action : a.getActions())
-				actionMap.remove(action.getActionID());
-			/*
-			 * TODO: At this point we can check if another actuator could
-			 * provide the action. We may want to rebuild the actionMap to see
-			 * if this is true. If so we can add the action immediately again
-			 * from that actuator
-			 */
+		Set<Action> actions = this.actuatorMap.remove(a);
+		if (actions != null) {
+			// Remove all its actions from the index, an other actuator of an
+			// action takes over
+			for (Action action : actions)
+				if (this.actionIndex.remove(action.getActionID(), action)) {
+					ANES_URN id = action.getActionID();
+					this.actionQueue.cancel(id, action);
+
+					// Keep the metrics while an other actuator takes over
+					if (!this.actionMap.containsKey(id)
+							&& !this.observationMap.containsKey(id))
+						this.recorder.remove(id);
+				}
 		}
 	}
 
@@ -282,19 +840,441 @@ public final class DefaultORAMediator implements ObservationProvider,
 	 * {@inheritDoc}
 	 */
 	@Override
-	public void unregisterObserver(Observer o) {
+	public synchronized void unregisterObserver(Observer o) {
 		logger.debug(new LogEntry(this.getClass().getName(),
 				LogConstants.LOG_LEVEL_DEBUG, "Reference", "Removing Observer "
 						+ o));
 
-		if (this.observerSet.remove(o)) {
-			// If the set updated, add the observations to the observationMap
-			for (Observation observation : o.getObservations())
-				observationMap.remove(observation.getObservationID());
-			/*
-			 * TODO: In the same way as in unregisterActuator, we could now
-			 * rebuild the observationMap
-			 */
+		Set<Observation> observations = this.observerMap.remove(o);
+		if (observations != null) {
+			// Remove all its observations from the index, an other observer
+			// of an observation takes over
+			for (Observation observation : observations)
+				if (this.observationIndex.remove(
+						observation.getObservationID(), observation)) {
+					ANES_URN id = observation.getObservationID();
+					this.cache.invalidate(id);
+
+					// Keep the history and metrics while an other observer
+					// takes over
+					if (!this.observationMap.containsKey(id)) {
+						this.history.remove(id);
+						if (!this.actionMap.containsKey(id))
+							this.recorder.remove(id);
+					}
+				}
+		}
+	}
+
+	/**
+	 * Read the observations of a batch in parallel
+	 * 
+	 * @param ids
+	 * @param timeout
+	 * @param unit
+	 *            the unit of the timeout, or null to wait without a deadline
+	 * @return
+	 */
+	private ObservationBatch readBatch(Set<ANES_URN> ids, long timeout,
+			TimeUnit unit) {
+		return this.readBatch(ids, timeout, unit, null);
+	}
+
+	/**
+	 * Read the observations of a batch in parallel
+	 * 
+	 * @param ids
+	 * @param timeout
+	 * @param unit
+	 *            the unit of the timeout, or null to wait without a deadline
+	 * @param unread
+	 *            if not null, receives the observations that failed because
+	 *            they were not read in time or could not be started, rather
+	 *            than because their observer failed
+	 * @return
+	 */
+	private ObservationBatch readBatch(Set<ANES_URN> ids, long timeout,
+			TimeUnit unit, Set<ANES_URN> unread) {
+		Map<ANES_URN, Object> values = new HashMap<ANES_URN, Object>();
+		Map<ANES_URN, Exception> errors = new HashMap<ANES_URN, Exception>();
+
+		List<ANES_URN> pending = new ArrayList<ANES_URN>(ids.size());
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(
+				ids.size());
+		for (final ANES_URN id : ids) {
+			if (InvocationMetrics.isMetrics(id)) {
+				ANES_BUNDLE metrics = this.recorder.read(id);
+				if (metrics == null)
+					errors.put(id, new InexistentObservationID(id));
+				else
+					values.put(id, metrics);
+				continue;
+			}
+
+			final Observation observation = id == null ? null
+					: observationMap.get(id);
+			if (observation == null) {
+				errors.put(id, new InexistentObservationID(id));
+				continue;
+			}
+
+			pending.add(id);
+			tasks.add(CorrelationId.wrap(new Callable<Object>() {
+				@Override
+				public Object call() throws ObservationInvocationException {
+					return read(id, observation);
+				}
+			}));
+		}
+
+		if (tasks.size() == 1 && unit == null) {
+			// Nothing to run in parallel
+			ANES_URN id = pending.get(0);
+			try {
+				values.put(id, tasks.get(0).call());
+			} catch (ObservationInvocationException e) {
+				errors.put(id, e);
+			} catch (Exception e) {
+				errors.put(id, new ObservationInvocationException(id, e));
+			}
+		} else if (!tasks.isEmpty()) {
+			long deadline = unit == null ? 0 : System.nanoTime()
+					+ unit.toNanos(timeout);
+
+			List<Future<Object>> results = new ArrayList<Future<Object>>(
+					tasks.size());
+			for (int i = 0; i < tasks.size(); i++) {
+				try {
+					results.add(this.getBatchExecutor().submit(tasks.get(i)));
+				} catch (RejectedExecutionException e) {
+					// Saturated or stopped, the caller does not read it itself
+					results.add(null);
+					errors.put(pending.get(i),
+							new ObservationInvocationException(pending.get(i),
+									e));
+					if (unread != null)
+						unread.add(pending.get(i));
+				}
+			}
+
+			try {
+				for (int i = 0; i < results.size(); i++)
+					if (results.get(i) != null)
+						collect(pending.get(i), results.get(i), unit != null,
+								deadline, values, errors, unread);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (int i = 0; i < results.size(); i++) {
+					ANES_URN id = pending.get(i);
+					if (results.get(i) != null)
+						results.get(i).cancel(true);
+					if (!values.containsKey(id) && !errors.containsKey(id)) {
+						errors.put(id, new ObservationInvocationException(id,
+								e));
+						if (unread != null)
+							unread.add(id);
+					}
+				}
+			}
+		}
+
+		if (logger.isTraceEnabled())
+			logger.trace(new LogEntry(this.getClass().getName(),
+					LogConstants.LOG_LEVEL_TRACE, "Reconfig", "Read batch of "
+							+ ids.size() + " observations, " + errors.size()
+							+ " failed"));
+
+		return new ObservationBatch(values, errors);
+	}
+
+	/**
+	 * Read an observation through the cache
+	 * 
+	 * @param id
+	 * @param observation
+	 * @return
+	 * @throws ObservationInvocationException
+	 */
+	private Object read(ANES_URN id, Observation observation)
+			throws ObservationInvocationException {
+		return this.cache.read(id, observation, this.backgroundExecutor);
+	}
+
+	/**
+	 * Call the observer of an observation, and record the call and the new
+	 * value, at the time it was taken
+	 * 
+	 * @param id
+	 * @param observation
+	 * @return
+	 * @throws ObservationInvocationException
+	 */
+	private Object load(ANES_URN id, Observation observation)
+			throws ObservationInvocationException {
+		Object value;
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			value = observation.getValue();
+			failed = false;
+		} finally {
+			this.recorder.record(id, System.nanoTime() - start, failed);
+		}
+
+		this.history.record(id, System.currentTimeMillis(), value);
+		return value;
+	}
+
+	/**
+	 * Wait for the result of an observation of a batch, and cancel it when it
+	 * misses the deadline
+	 * 
+	 * @param id
+	 * @param result
+	 * @param timed
+	 *            whether the batch has a deadline
+	 * @param deadline
+	 *            the deadline, in terms of {@link System#nanoTime()}
+	 * @param values
+	 * @param errors
+	 * @param unread
+	 *            if not null, receives the id if the observation missed the
+	 *            deadline
+	 * @throws InterruptedException
+	 */
+	private static void collect(ANES_URN id, Future<Object> result,
+			boolean timed, long deadline, Map<ANES_URN, Object> values,
+			Map<ANES_URN, Exception> errors, Set<ANES_URN> unread)
+			throws InterruptedException {
+		try {
+			values.put(id, timed ? result.get(deadline - System.nanoTime(),
+					TimeUnit.NANOSECONDS) : result.get());
+		} catch (TimeoutException e) {
+			result.cancel(true);
+			errors.put(id, new ObservationInvocationException(id,
+					new TimeoutException("Observation did not finish in time")));
+			if (unread != null)
+				unread.add(id);
+		} catch (CancellationException e) {
+			errors.put(id, new ObservationInvocationException(id,
+					new TimeoutException("Observation did not finish in time")));
+			if (unread != null)
+				unread.add(id);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof ObservationInvocationException)
+				errors.put(id, (ObservationInvocationException) cause);
+			else
+				errors.put(id, new ObservationInvocationException(id, cause));
+		}
+	}
+
+	/**
+	 * @param properties
+	 * @return the service ranking in the properties, or 0 if there is none
+	 */
+	private static int ranking(Map<String, Object> properties) {
+		Object ranking = properties == null ? null : properties
+				.get(Constants.SERVICE_RANKING);
+		return ranking instanceof Integer ? (Integer) ranking : 0;
+	}
+
+	private synchronized ExecutorService getBatchExecutor() {
+		this.checkRunning();
+		if (this.batchExecutor == null) {
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(
+					BATCH_THREADS, BATCH_THREADS, 30, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<Runnable>(BATCH_QUEUE_SIZE),
+					new DaemonThreadFactory("dmns-observation-"));
+			executor.allowCoreThreadTimeOut(true);
+			this.batchExecutor = executor;
+		}
+		return this.batchExecutor;
+	}
+
+	private synchronized ExecutorService getRefreshExecutor() {
+		this.checkRunning();
+		if (this.refreshExecutor == null) {
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(
+					REFRESH_THREADS, REFRESH_THREADS, 30, TimeUnit.SECONDS,
+					new ArrayBlockingQueue<Runnable>(REFRESH_QUEUE_SIZE),
+					new DaemonThreadFactory("dmns-refresh-"));
+			executor.allowCoreThreadTimeOut(true);
+			this.refreshExecutor = executor;
+		}
+		return this.refreshExecutor;
+	}
+
+	/**
+	 * @throws RejectedExecutionException
+	 *             if the mediator is stopped, so that its executors are not
+	 *             created again
+	 */
+	private void checkRunning() {
+		if (this.stopped)
+			throw new RejectedExecutionException("The mediator is stopped");
+	}
+
+	/**
+	 * Run an asynchronous call and start its deadline. When the pool is full
+	 * the call fails immediately, rather than blocking the caller.
+	 * 
+	 * @param task
+	 * @param timeout
+	 * @param unit
+	 * @return
+	 */
+	private <V> Future<V> submit(DeadlineTask<V> task, long timeout,
+			TimeUnit unit) {
+		try {
+			this.getAsyncExecutor().execute(task);
+			task.schedule(this.getDeadlineTimer(), timeout, unit);
+		} catch (RejectedExecutionException e) {
+			logger.error(new LogEntry(this.getClass().getName(),
+					LogConstants.LOG_LEVEL_ERROR, "Reconfig",
+					"Rejected asynchronous call: " + e));
+			task.fail(e);
+		}
+		return task;
+	}
+
+	private synchronized ExecutorService getAsyncExecutor() {
+		this.checkRunning();
+		if (this.asyncExecutor == null) {
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(
+					this.asyncThreads, this.asyncThreads, 30,
+					TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(
+							BATCH_QUEUE_SIZE), new DaemonThreadFactory(
+							"dmns-async-"));
+			executor.allowCoreThreadTimeOut(true);
+			this.asyncExecutor = executor;
+		}
+		return this.asyncExecutor;
+	}
+
+	private synchronized ScheduledExecutorService getDeadlineTimer() {
+		this.checkRunning();
+		if (this.deadlineTimer == null) {
+			ScheduledThreadPoolExecutor timer = new ScheduledThreadPoolExecutor(
+					1, new DaemonThreadFactory("dmns-deadline-"));
+			// Most deadlines are cancelled, do not keep them queued
+			timer.setRemoveOnCancelPolicy(true);
+			this.deadlineTimer = timer;
+		}
+		return this.deadlineTimer;
+	}
+
+	private synchronized void setAsyncThreads(int threads) {
+		if (threads < 1) {
+			logger.error(new LogEntry(this.getClass().getName(),
+					LogConstants.LOG_LEVEL_ERROR, "Config",
+					"Ignoring invalid number of asynchronous threads "
+							+ threads));
+			return;
+		}
+
+		this.asyncThreads = threads;
+		if (this.asyncExecutor != null) {
+			// The core size may never exceed the maximum size
+			if (threads > this.asyncExecutor.getMaximumPoolSize()) {
+				this.asyncExecutor.setMaximumPoolSize(threads);
+				this.asyncExecutor.setCorePoolSize(threads);
+			} else {
+				this.asyncExecutor.setCorePoolSize(threads);
+				this.asyncExecutor.setMaximumPoolSize(threads);
+			}
+		}
+	}
+
+	/**
+	 * Run one reasoning cycle of the reasoner on the current thread
+	 * 
+	 * @param r
+	 */
+	private void runCycle(Reasoner r) {
+		Set<ANES_URN> ids = new HashSet<ANES_URN>(this.lastCycleObservations);
+		ids.addAll(this.declaredObservations);
+
+		Cycle current = new Cycle();
+		if (!ids.isEmpty()) {
+			Set<ANES_URN> unread = new HashSet<ANES_URN>();
+			ObservationBatch snapshot = this.readBatch(ids,
+					this.snapshotTimeout, TimeUnit.MILLISECONDS, unread);
+			current.values.putAll(snapshot.getValues());
+
+			// Only replay what the observers threw, the others are read when
+			// the reasoner asks for them
+			for (Entry<ANES_URN, Exception> error : snapshot.getErrors()
+					.entrySet())
+				if (!unread.contains(error.getKey()))
+					current.errors.put(error.getKey(), error.getValue());
+		}
+
+		this.cycle.set(current);
+		try {
+			r.trigger();
+		} finally {
+			this.cycle.remove();
+			this.lastCycleObservations = current.used;
+		}
+	}
+
+	/**
+	 * The observations read during a reasoning cycle. Only used by the thread
+	 * running the cycle.
+	 */
+	private static final class Cycle {
+
+		final Map<ANES_URN, Object> values = new HashMap<ANES_URN, Object>();
+
+		final Map<ANES_URN, Exception> errors = new HashMap<ANES_URN, Exception>();
+
+		final Set<ANES_URN> used = new HashSet<ANES_URN>();
+	}
+
+	/**
+	 * Wraps the reasoner for the trigger policy, so that each trigger runs a
+	 * reasoning cycle
+	 */
+	private final class ReasoningCycle implements Triggerable {
+
+		private final Reasoner wrapped;
+
+		ReasoningCycle(Reasoner wrapped) {
+			this.wrapped = wrapped;
+		}
+
+		@Override
+		public void trigger() {
+			runCycle(this.wrapped);
+		}
+
+		@Override
+		public String toString() {
+			return this.wrapped.toString();
+		}
+	}
+
+	/**
+	 * Creates the daemon threads of the batches, asynchronous calls and
+	 * deadlines
+	 */
+	private static final class DaemonThreadFactory implements ThreadFactory {
+
+		private final String prefix;
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		DaemonThreadFactory(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, this.prefix
+					+ this.count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,98 @@
+/**
+ * File DefaultORAMediatorConfiguration.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.reconfiguration;
+
+/**
+ * DefaultORAMediatorConfiguration
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public class DefaultORAMediatorConfiguration implements
+		ORAMediatorConfiguration {
+
+	public static final String DEFAULT_OBSERVATION_CACHE = "";
+
+	public static final String DEFAULT_ASYNC_THREADS = "4";
+
+	public static final String DEFAULT_QUEUED_ACTIONS = "false";
+
+	public static final String DEFAULT_HISTORY_SIZE = "64";
+
+	public static final String DEFAULT_SNAPSHOT_TIMEOUT = "200";
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see eu.artemis.demanes.impl.reconfiguration.ORAMediatorConfiguration#
+	 * observationCache()
+	 */
+	@Override
+	public String[] observationCache() {
+		return new String[0];
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see eu.artemis.demanes.impl.reconfiguration.ORAMediatorConfiguration#
+	 * asyncThreads()
+	 */
+	@Override
+	public int asyncThreads() {
+		return Integer.parseInt(DEFAULT_ASYNC_THREADS);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see eu.artemis.demanes.impl.reconfiguration.ORAMediatorConfiguration#
+	 * queuedActions()
+	 */
+	@Override
+	public boolean queuedActions() {
+		return Boolean.parseBoolean(DEFAULT_QUEUED_ACTIONS);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see eu.artemis.demanes.impl.reconfiguration.ORAMediatorConfiguration#
+	 * historySize()
+	 */
+	@Override
+	public int historySize() {
+		return Integer.parseInt(DEFAULT_HISTORY_SIZE);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see eu.artemis.demanes.impl.reconfiguration.ORAMediatorConfiguration#
+	 * snapshotTimeout()
+	 */
+	@Override
+	public long snapshotTimeout() {
+		return Long.parseLong(DEFAULT_SNAPSHOT_TIMEOUT);
+	}
+
+}
@@ -0,0 +1,167 @@
+/**
+ * File HistoryStore.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.reconfiguration;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+import eu.artemis.demanes.datatypes.ANES_URN;
+import eu.artemis.demanes.lib.impl.reconfiguration.ObservationHistory;
+
+/**
+ * HistoryStore
+ * 
+ * Keeps the history of the numeric observations, see
+ * {@link ObservationHistory}, in a ring of primitive arrays per URN. A ring is
+ * created when the first value of its URN is recorded, after that recording
+ * and reading allocate nothing.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+final class HistoryStore {
+
+	private final ConcurrentHashMap<ANES_URN, Ring> rings = new ConcurrentHashMap<ANES_URN, Ring>();
+
+	private volatile int capacity;
+
+	/**
+	 * @param capacity
+	 *            the number of values to keep per URN
+	 */
+	HistoryStore(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * Change the number of values to keep per URN, which drops the history
+	 * 
+	 * @param capacity
+	 *            the number of values, or 0 to keep none
+	 */
+	void setCapacity(int capacity) {
+		if (capacity != this.capacity) {
+			this.capacity = capacity;
+			this.rings.clear();
+		}
+	}
+
+	/**
+	 * Record a value of an observation, if it is numeric
+	 * 
+	 * @param id
+	 * @param time
+	 * @param value
+	 */
+	void record(ANES_URN id, long time, Object value) {
+		if (!(value instanceof Number))
+			return;
+
+		Ring ring = this.rings.get(id);
+		if (ring == null) {
+			int size = this.capacity;
+			if (size <= 0)
+				return;
+
+			Ring created = new Ring(size);
+			ring = this.rings.putIfAbsent(id, created);
+			if (ring == null)
+				ring = created;
+		}
+		ring.add(time, ((Number) value).doubleValue());
+	}
+
+	int query(ANES_URN id, long from, long to, long[] times, double[] values) {
+		Ring ring = this.rings.get(id);
+		return ring == null ? 0 : ring.query(from, to, times, values);
+	}
+
+	int size(ANES_URN id) {
+		Ring ring = this.rings.get(id);
+		return ring == null ? 0 : ring.size();
+	}
+
+	void remove(ANES_URN id) {
+		this.rings.remove(id);
+	}
+
+	private static final class Ring {
+
+		private final long[] times;
+
+		private final double[] values;
+
+		/**
+		 * The position of the next value
+		 */
+		private int next;
+
+		private int count;
+
+		Ring(int capacity) {
+			this.times = new long[capacity];
+			this.values = new double[capacity];
+		}
+
+		synchronized void add(long time, double value) {
+			this.times[this.next] = time;
+			this.values[this.next] = value;
+			this.next = (this.next + 1) % this.times.length;
+			if (this.count < this.times.length)
+				this.count++;
+		}
+
+		synchronized int size() {
+			return this.count;
+		}
+
+		synchronized int query(long from, long to, long[] times,
+				double[] values) {
+			int max = Math.min(times.length, values.length);
+			int capacity = this.times.length;
+
+			// Walk back from the newest value to find the oldest one to copy
+			int found = 0;
+			int oldest = -1;
+			for (int k = 0; k < this.count && found < max; k++) {
+				int pos = (this.next - 1 - k + capacity) % capacity;
+				if (this.times[pos] > to)
+					continue;
+				if (this.times[pos] < from)
+					break;
+				found++;
+				oldest = k;
+			}
+
+			// Copy from the oldest to the newest
+			int copied = 0;
+			for (int k = oldest; k >= 0 && copied < found; k--) {
+				int pos = (this.next - 1 - k + capacity) % capacity;
+				if (this.times[pos] > to || this.times[pos] < from)
+					continue;
+				times[copied] = this.times[pos];
+				values[copied] = this.values[pos];
+				copied++;
+			}
+			return copied;
+		}
+	}
+}
@@ -0,0 +1,208 @@
+/**
+ * File InvocationRecorder.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.reconfiguration;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import eu.artemis.demanes.datatypes.ANES_BUNDLE;
+import eu.artemis.demanes.datatypes.ANES_URN;
+import eu.artemis.demanes.impl.datatypes.DefaultANES_BUNDLE;
+import eu.artemis.demanes.lib.impl.reconfiguration.InvocationMetrics;
+
+/**
+ * InvocationRecorder
+ * 
+ * Records the number of calls and errors, and a histogram of the durations,
+ * of every observation and action, see {@link InvocationMetrics}. Recording
+ * only updates atomic counters, it never locks.
+ * 
+ * The histogram is log-linear: durations below 16 ns have a bucket each, every
+ * higher power of two is split in 8 buckets of equal width. A bucket is at
+ * most 12.5% wider than its lower bound, which bounds the error of the
+ * percentiles.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+final class InvocationRecorder {
+
+	/**
+	 * Durations below this have a bucket each
+	 */
+	private static final int LINEAR = 16;
+
+	/**
+	 * log2 of the number of buckets per power of two
+	 */
+	private static final int SUB_BITS = 3;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+	private static final int BUCKETS = LINEAR + (63 - 4) * SUB_BUCKETS;
+
+	private final ConcurrentHashMap<ANES_URN, Metric> metrics = new ConcurrentHashMap<ANES_URN, Metric>();
+
+	/**
+	 * The same metrics, by the URN under which they are observed
+	 */
+	private final ConcurrentHashMap<ANES_URN, Metric> observed = new ConcurrentHashMap<ANES_URN, Metric>();
+
+	/**
+	 * Record a call
+	 * 
+	 * @param id
+	 * @param nanos
+	 *            the duration of the call
+	 * @param failed
+	 */
+	void record(ANES_URN id, long nanos, boolean failed) {
+		Metric metric = this.metrics.get(id);
+		if (metric == null) {
+			Metric created = new Metric();
+			metric = this.metrics.putIfAbsent(id, created);
+			if (metric == null) {
+				metric = created;
+				this.observed.put(InvocationMetrics.metricsOf(id), created);
+			}
+		}
+		metric.record(nanos, failed);
+	}
+
+	/**
+	 * Drop the metrics of a URN that is no longer provided. A call that is
+	 * still running records new metrics when it finishes.
+	 * 
+	 * @param id
+	 */
+	void remove(ANES_URN id) {
+		Metric metric = this.metrics.remove(id);
+		if (metric != null)
+			this.observed.remove(InvocationMetrics.metricsOf(id), metric);
+	}
+
+	/**
+	 * @param metricsId
+	 *            the URN of the metrics observation
+	 * @return the metrics, or null if nothing was recorded
+	 */
+	ANES_BUNDLE read(ANES_URN metricsId) {
+		Metric metric = this.observed.get(metricsId);
+		return metric == null ? null : metric.toBundle();
+	}
+
+	/**
+	 * @return the URNs of the metrics observations
+	 */
+	Set<ANES_URN> getObservations() {
+		return Collections.unmodifiableSet(new HashSet<ANES_URN>(this.observed
+				.keySet()));
+	}
+
+	static int bucketOf(long nanos) {
+		if (nanos < LINEAR)
+			return nanos < 0 ? 0 : (int) nanos;
+
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int sub = (int) (nanos >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return LINEAR + (exponent - 4) * SUB_BUCKETS + sub;
+	}
+
+	/**
+	 * @param bucket
+	 * @return the highest duration in the bucket
+	 */
+	static long upperBound(int bucket) {
+		if (bucket < LINEAR)
+			return bucket;
+
+		int exponent = (bucket - LINEAR) / SUB_BUCKETS + 4;
+		long sub = (bucket - LINEAR) % SUB_BUCKETS;
+		long width = 1L << (exponent - SUB_BITS);
+		return (SUB_BUCKETS + sub) * width + width - 1;
+	}
+
+	private static final class Metric {
+
+		final AtomicLong calls = new AtomicLong();
+
+		final AtomicLong errors = new AtomicLong();
+
+		final AtomicLong max = new AtomicLong();
+
+		final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+		void record(long nanos, boolean failed) {
+			this.calls.incrementAndGet();
+			if (failed)
+				this.errors.incrementAndGet();
+			this.histogram.incrementAndGet(bucketOf(nanos));
+
+			long current = this.max.get();
+			while (nanos > current && !this.max.compareAndSet(current, nanos))
+				current = this.max.get();
+		}
+
+		/**
+		 * @param fraction
+		 * @param counts
+		 *            a copy of the histogram
+		 * @param total
+		 *            the sum of the counts
+		 * @return the duration below which the fraction of the calls fall
+		 */
+		long percentile(double fraction, long[] counts, long total) {
+			long rank = (long) Math.ceil(fraction * total);
+			long seen = 0;
+			for (int i = 0; i < counts.length; i++) {
+				seen += counts[i];
+				if (seen >= rank && seen > 0)
+					return Math.min(upperBound(i), this.max.get());
+			}
+			return this.max.get();
+		}
+
+		ANES_BUNDLE toBundle() {
+			// The counters move on while they are read, use one copy
+			long[] counts = new long[BUCKETS];
+			long total = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				counts[i] = this.histogram.get(i);
+				total += counts[i];
+			}
+
+			ANES_BUNDLE bundle = new DefaultANES_BUNDLE();
+			bundle.put(InvocationMetrics.CALLS, this.calls.get());
+			bundle.put(InvocationMetrics.ERRORS, this.errors.get());
+			bundle.put(InvocationMetrics.P50, this.percentile(0.5, counts,
+					total));
+			bundle.put(InvocationMetrics.P99, this.percentile(0.99, counts,
+					total));
+			bundle.put(InvocationMetrics.MAX, this.max.get());
+			return bundle;
+		}
+	}
+}
@@ -0,0 +1,50 @@
+/**
+ * File ORAMediatorConfiguration.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.reconfiguration;
+
+import aQute.bnd.annotation.metatype.Meta.AD;
+import aQute.bnd.annotation.metatype.Meta.OCD;
+
+/**
+ * ORAMediatorConfiguration
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+@OCD(name = "Configuration for the ORA Mediator")
+public interface ORAMediatorConfiguration {
+
+	@AD(name = "Observation cache policies", description = "Cache policies of observations, as urn=maxAge[,refreshAhead[,staleWhileRevalidate]] with times in milliseconds", deflt = DefaultORAMediatorConfiguration.DEFAULT_OBSERVATION_CACHE, required = false)
+	public String[] observationCache();
+
+	@AD(name = "Asynchronous threads", description = "The number of threads running asynchronous observations and actions", deflt = DefaultORAMediatorConfiguration.DEFAULT_ASYNC_THREADS, required = false)
+	public int asyncThreads();
+
+	@AD(name = "Queued actions", description = "Invoke actions on a worker thread, where repeated invocations of a busy action collapse into the latest one", deflt = DefaultORAMediatorConfiguration.DEFAULT_QUEUED_ACTIONS, required = false)
+	public boolean queuedActions();
+
+	@AD(name = "Observation history size", description = "The number of values kept of every numeric observation, 0 to keep none", deflt = DefaultORAMediatorConfiguration.DEFAULT_HISTORY_SIZE, required = false)
+	public int historySize();
+
+	@AD(name = "Snapshot timeout", description = "The time in milliseconds to wait for the observations read at the start of a reasoning cycle", deflt = DefaultORAMediatorConfiguration.DEFAULT_SNAPSHOT_TIMEOUT, required = false)
+	public long snapshotTimeout();
+}
@@ -0,0 +1,270 @@
+/**
+ * File ObservationCache.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.reconfiguration;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+
+import eu.artemis.demanes.datatypes.ANES_URN;
+import eu.artemis.demanes.exceptions.ObservationInvocationException;
+import eu.artemis.demanes.lib.impl.reconfiguration.CachePolicy;
+import eu.artemis.demanes.lib.impl.reconfiguration.CacheStatistics;
+import eu.artemis.demanes.logging.LogConstants;
+import eu.artemis.demanes.logging.LogEntry;
+import eu.artemis.demanes.reconfiguration.Observation;
+
+/**
+ * ObservationCache
+ * 
+ * Caches the values of the observations that have a {@link CachePolicy}.
+ * Observations without a policy are read every time. A fresh value is served
+ * from the cache; when it is older than the refresh-ahead time, or expired but
+ * within the stale-while-revalidate time, it is still served while one new
+ * read runs in the background. Otherwise the caller reads the observation,
+ * and concurrent callers wait for that read instead of starting their own.
+ * 
+ * Every value remembers the observation it was read from, and is only served
+ * for that observation. When another provider takes over a URN, a read of
+ * the old provider that was still running can not put its value in front of
+ * the new provider.
+ * 
+ * Observations are only ever read through the {@link Loader} of the cache,
+ * so that the owner sees every call of an observer, and none of the hits.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+final class ObservationCache {
+
+	/**
+	 * Reads the value of an observation from its observer
+	 */
+	interface Loader {
+
+		/**
+		 * @param id
+		 * @param observation
+		 * @return the value of the observation
+		 * @throws ObservationInvocationException
+		 */
+		Object load(ANES_URN id, Observation observation)
+				throws ObservationInvocationException;
+	}
+
+	private final static Logger logger = Logger.getLogger("dmns:log");
+
+	private final ConcurrentHashMap<ANES_URN, Entry> entries = new ConcurrentHashMap<ANES_URN, Entry>();
+
+	private final Loader loader;
+
+	/**
+	 * @param loader
+	 *            reads the observations that are not served from the cache
+	 */
+	ObservationCache(Loader loader) {
+		this.loader = loader;
+	}
+
+	/**
+	 * Read the value of an observation, from the cache if its policy allows
+	 * 
+	 * @param id
+	 * @param observation
+	 * @param executor
+	 *            runs the background reads
+	 * @return
+	 * @throws ObservationInvocationException
+	 */
+	Object read(ANES_URN id, Observation observation, Executor executor)
+			throws ObservationInvocationException {
+		Entry entry = this.entries.get(id);
+		if (entry == null)
+			return this.loader.load(id, observation);
+		return entry.read(id, observation, executor);
+	}
+
+	/**
+	 * Set the policy of an observation, which resets its counters
+	 * 
+	 * @param id
+	 * @param policy
+	 *            the policy, or null to stop caching the observation
+	 */
+	void setPolicy(ANES_URN id, CachePolicy policy) {
+		if (policy == null)
+			this.entries.remove(id);
+		else
+			this.entries.put(id, new Entry(policy, this.loader));
+	}
+
+	/**
+	 * Remove all policies
+	 */
+	void clear() {
+		this.entries.clear();
+	}
+
+	/**
+	 * Drop the cached value of an observation, for instance because the
+	 * observation was removed. A read of the observation that is still
+	 * running may store its value afterwards, but it is not served for any
+	 * other observation.
+	 * 
+	 * @param id
+	 */
+	void invalidate(ANES_URN id) {
+		Entry entry = this.entries.get(id);
+		if (entry != null)
+			entry.sample = null;
+	}
+
+	CacheStatistics getStatistics(ANES_URN id) {
+		Entry entry = this.entries.get(id);
+		if (entry == null)
+			return null;
+
+		return new CacheStatistics(entry.hits.get(), entry.staleHits.get(),
+				entry.misses.get(), entry.refreshes.get());
+	}
+
+	/**
+	 * A value, the observation it was read from and the time it was read
+	 */
+	private static final class Sample {
+
+		final Object value;
+
+		final Observation source;
+
+		final long time;
+
+		Sample(Object value, Observation source, long time) {
+			this.value = value;
+			this.source = source;
+			this.time = time;
+		}
+	}
+
+	private static final class Entry {
+
+		final Loader loader;
+
+		final long maxAge;
+
+		final long refreshAhead;
+
+		final long staleUntil;
+
+		volatile Sample sample;
+
+		final AtomicBoolean refreshing = new AtomicBoolean();
+
+		final AtomicLong hits = new AtomicLong();
+
+		final AtomicLong staleHits = new AtomicLong();
+
+		final AtomicLong misses = new AtomicLong();
+
+		final AtomicLong refreshes = new AtomicLong();
+
+		Entry(CachePolicy policy, Loader loader) {
+			this.loader = loader;
+			this.maxAge = TimeUnit.MILLISECONDS.toNanos(policy.getMaxAge());
+			this.refreshAhead = policy.getRefreshAhead() == 0 ? Long.MAX_VALUE
+					: TimeUnit.MILLISECONDS.toNanos(policy.getRefreshAhead());
+			this.staleUntil = this.maxAge
+					+ TimeUnit.MILLISECONDS.toNanos(policy
+							.getStaleWhileRevalidate());
+		}
+
+		Object read(ANES_URN id, Observation observation, Executor executor)
+				throws ObservationInvocationException {
+			Sample s = this.sample;
+			if (s != null && s.source == observation) {
+				long age = System.nanoTime() - s.time;
+				if (age <= this.maxAge) {
+					this.hits.incrementAndGet();
+					if (age >= this.refreshAhead)
+						this.refresh(id, observation, executor);
+					return s.value;
+				} else if (age <= this.staleUntil) {
+					this.staleHits.incrementAndGet();
+					this.refresh(id, observation, executor);
+					return s.value;
+				}
+			}
+
+			synchronized (this) {
+				// Another caller may have read the observation meanwhile
+				s = this.sample;
+				if (s != null && s.source == observation
+						&& System.nanoTime() - s.time <= this.maxAge) {
+					this.hits.incrementAndGet();
+					return s.value;
+				}
+
+				this.misses.incrementAndGet();
+				Object value = this.loader.load(id, observation);
+				this.sample = new Sample(value, observation, System.nanoTime());
+				return value;
+			}
+		}
+
+		/**
+		 * Start a background read, unless one is running already
+		 */
+		private void refresh(final ANES_URN id, final Observation observation,
+				Executor executor) {
+			if (!this.refreshing.compareAndSet(false, true))
+				return;
+
+			try {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							Object value = loader.load(id, observation);
+							sample = new Sample(value, observation,
+									System.nanoTime());
+							refreshes.incrementAndGet();
+						} catch (Exception e) {
+							// Keep serving the old value until it expires
+							logger.warn(new LogEntry(ObservationCache.class.getName(),
+									LogConstants.LOG_LEVEL_WARN, "Reconfig",
+									"Unable to refresh " + id + ": " + e));
+						} finally {
+							refreshing.set(false);
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				this.refreshing.set(false);
+			}
+		}
+	}
+}
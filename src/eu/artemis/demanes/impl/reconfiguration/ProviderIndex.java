@@ -0,0 +1,144 @@
+/**
+ * File ProviderIndex.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.impl.reconfiguration;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import eu.artemis.demanes.datatypes.ANES_URN;
+
+/**
+ * ProviderIndex
+ * 
+ * Keeps every provider of a URN, ranked from best to worst, and publishes the
+ * best one in a concurrent map that is read without locking. Providers with a
+ * higher ranking come first, providers with the same ranking in the order in
+ * which they were added. When the best provider is removed, the next one is
+ * published in its place.
+ * 
+ * Changes must be serialized by the caller.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+final class ProviderIndex<T> {
+
+	private final ConcurrentHashMap<ANES_URN, T> active;
+
+	private final Map<ANES_URN, List<Candidate<T>>> candidates = new HashMap<ANES_URN, List<Candidate<T>>>();
+
+	private long sequence;
+
+	/**
+	 * @param active
+	 *            the map in which the best provider of every URN is published
+	 */
+	ProviderIndex(ConcurrentHashMap<ANES_URN, T> active) {
+		this.active = active;
+	}
+
+	/**
+	 * Add a provider of a URN
+	 * 
+	 * @param id
+	 * @param provider
+	 * @param ranking
+	 * @return true if the provider became the best provider of the URN
+	 */
+	boolean add(ANES_URN id, T provider, int ranking) {
+		List<Candidate<T>> list = this.candidates.get(id);
+		if (list == null) {
+			list = new ArrayList<Candidate<T>>(1);
+			this.candidates.put(id, list);
+		}
+
+		Candidate<T> candidate = new Candidate<T>(provider, ranking,
+				this.sequence++);
+		int i = 0;
+		while (i < list.size() && list.get(i).before(candidate))
+			i++;
+		list.add(i, candidate);
+
+		if (i > 0)
+			return false;
+
+		this.active.put(id, provider);
+		return true;
+	}
+
+	/**
+	 * Remove a provider of a URN
+	 * 
+	 * @param id
+	 * @param provider
+	 * @return true if the provider was the best provider of the URN, in which
+	 *         case the next one, if any, has taken its place
+	 */
+	boolean remove(ANES_URN id, T provider) {
+		List<Candidate<T>> list = this.candidates.get(id);
+		if (list == null)
+			return false;
+
+		for (int i = 0; i < list.size(); i++) {
+			if (list.get(i).provider != provider)
+				continue;
+
+			list.remove(i);
+			if (i > 0)
+				return false;
+
+			// The list is kept ranked, so the next provider is at the head
+			if (list.isEmpty()) {
+				this.candidates.remove(id);
+				this.active.remove(id, provider);
+			} else {
+				this.active.put(id, list.get(0).provider);
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private static final class Candidate<T> {
+
+		final T provider;
+
+		final int ranking;
+
+		final long sequence;
+
+		Candidate(T provider, int ranking, long sequence) {
+			this.provider = provider;
+			this.ranking = ranking;
+			this.sequence = sequence;
+		}
+
+		boolean before(Candidate<T> other) {
+			if (this.ranking != other.ranking)
+				return this.ranking > other.ranking;
+			return this.sequence < other.sequence;
+		}
+	}
+}
@@ -0,0 +1,77 @@
+/**
+ * File AsyncORAProvider.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.reconfiguration;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import eu.artemis.demanes.datatypes.ANES_BUNDLE;
+import eu.artemis.demanes.datatypes.ANES_URN;
+
+/**
+ * AsyncORAProvider
+ * 
+ * Reads observations and invokes actions without blocking the calling thread.
+ * Every call has a deadline, after which its future fails and the thread
+ * running the call is interrupted. The caller is released at the deadline,
+ * even when the observer or actuator does not respond to the interrupt.
+ * 
+ * The futures fail with an {@link java.util.concurrent.ExecutionException}
+ * caused by the exception the synchronous call would have thrown. When the
+ * deadline passes that is an ObservationInvocationException or
+ * ActionInvocationException caused by a
+ * {@link java.util.concurrent.TimeoutException}. Cancelling a future
+ * interrupts the call if it is running.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public interface AsyncORAProvider {
+
+	/**
+	 * Read an observation in the background
+	 * 
+	 * @param id
+	 * @param timeout
+	 * @param unit
+	 *            the unit of the timeout, or null to wait without a deadline
+	 * @return the future value of the observation
+	 */
+	public Future<Object> getValueAsync(ANES_URN id, long timeout,
+			TimeUnit unit);
+
+	/**
+	 * Invoke an action in the background. The arguments are copied when the
+	 * call is made, so the caller may reuse them right away. The action is
+	 * invoked directly, even when the provider queues other invocations, so
+	 * that the future reports its outcome.
+	 * 
+	 * @param id
+	 * @param arguments
+	 * @param timeout
+	 * @param unit
+	 *            the unit of the timeout, or null to wait without a deadline
+	 * @return a future that completes when the action has finished
+	 */
+	public Future<Void> invokeAsync(ANES_URN id, ANES_BUNDLE arguments,
+			long timeout, TimeUnit unit);
+}
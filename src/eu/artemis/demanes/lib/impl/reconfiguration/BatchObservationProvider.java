@@ -0,0 +1,68 @@
+/**
+ * File BatchObservationProvider.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.reconfiguration;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import eu.artemis.demanes.datatypes.ANES_URN;
+import eu.artemis.demanes.reconfiguration.ObservationProvider;
+
+/**
+ * BatchObservationProvider
+ * 
+ * An ObservationProvider that can read many observations in one call. The
+ * observations of a batch are independent, so they may be read in parallel,
+ * and a slow observation does not hold up the others.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public interface BatchObservationProvider extends ObservationProvider {
+
+	/**
+	 * Read the values of several observations
+	 * 
+	 * @param ids
+	 *            the identifiers of the observations to read
+	 * @return the values, and the errors of the observations that could not
+	 *         be read
+	 */
+	public ObservationBatch getValues(Set<ANES_URN> ids);
+
+	/**
+	 * Read the values of several observations, within a deadline.
+	 * Observations that did not finish in time are reported as errors, with
+	 * a {@link java.util.concurrent.TimeoutException} as their cause.
+	 * 
+	 * @param ids
+	 *            the identifiers of the observations to read
+	 * @param timeout
+	 *            the maximum time to wait for the whole batch
+	 * @param unit
+	 *            the unit of the timeout
+	 * @return the values, and the errors of the observations that could not
+	 *         be read
+	 */
+	public ObservationBatch getValues(Set<ANES_URN> ids, long timeout,
+			TimeUnit unit);
+}
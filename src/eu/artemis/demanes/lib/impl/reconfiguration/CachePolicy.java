@@ -0,0 +1,113 @@
+/**
+ * File CachePolicy.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.reconfiguration;
+
+/**
+ * CachePolicy
+ * 
+ * Determines how long the value of an observation may be served from a cache
+ * instead of reading the observation again. All times are in milliseconds.
+ * 
+ * <ul>
+ * <li><b>maxAge</b>: a value is fresh for this long after it was read</li>
+ * <li><b>refreshAhead</b>: a fresh value older than this is still served,
+ * but a new value is read in the background. Zero disables refreshing ahead.
+ * </li>
+ * <li><b>staleWhileRevalidate</b>: for this long after it expired a value is
+ * still served while a new value is read in the background. Zero means an
+ * expired value is never served.</li>
+ * </ul>
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public final class CachePolicy {
+
+	private final long maxAge;
+
+	private final long refreshAhead;
+
+	private final long staleWhileRevalidate;
+
+	/**
+	 * @param maxAge
+	 * @param refreshAhead
+	 * @param staleWhileRevalidate
+	 * @throws IllegalArgumentException
+	 *             if a time is negative, or refreshAhead exceeds maxAge
+	 */
+	public CachePolicy(long maxAge, long refreshAhead, long staleWhileRevalidate) {
+		if (maxAge < 0 || refreshAhead < 0 || staleWhileRevalidate < 0)
+			throw new IllegalArgumentException("Negative cache time");
+		if (refreshAhead > maxAge)
+			throw new IllegalArgumentException(
+					"refreshAhead may not exceed maxAge");
+
+		this.maxAge = maxAge;
+		this.refreshAhead = refreshAhead;
+		this.staleWhileRevalidate = staleWhileRevalidate;
+	}
+
+	/**
+	 * Parse a policy of the form
+	 * <code>maxAge[,refreshAhead[,staleWhileRevalidate]]</code>
+	 * 
+	 * @param policy
+	 * @return
+	 * @throws IllegalArgumentException
+	 *             if the policy can not be parsed
+	 */
+	public static CachePolicy parse(String policy) {
+		String[] parts = policy.split(",");
+		if (parts.length > 3)
+			throw new IllegalArgumentException("Invalid cache policy "
+					+ policy);
+
+		try {
+			long[] times = new long[3];
+			for (int i = 0; i < parts.length; i++)
+				times[i] = Long.parseLong(parts[i].trim());
+			return new CachePolicy(times[0], times[1], times[2]);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid cache policy "
+					+ policy, e);
+		}
+	}
+
+	public long getMaxAge() {
+		return this.maxAge;
+	}
+
+	public long getRefreshAhead() {
+		return this.refreshAhead;
+	}
+
+	public long getStaleWhileRevalidate() {
+		return this.staleWhileRevalidate;
+	}
+
+	@Override
+	public String toString() {
+		return this.maxAge + "," + this.refreshAhead + ","
+				+ this.staleWhileRevalidate;
+	}
+}
@@ -0,0 +1,84 @@
+/**
+ * File CacheStatistics.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.reconfiguration;
+
+/**
+ * CacheStatistics
+ * 
+ * The counters of the cache of one observation, since its policy was set.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public final class CacheStatistics {
+
+	private final long hits;
+
+	private final long staleHits;
+
+	private final long misses;
+
+	private final long refreshes;
+
+	public CacheStatistics(long hits, long staleHits, long misses,
+			long refreshes) {
+		this.hits = hits;
+		this.staleHits = staleHits;
+		this.misses = misses;
+		this.refreshes = refreshes;
+	}
+
+	/**
+	 * @return the number of reads served with a fresh value
+	 */
+	public long getHits() {
+		return this.hits;
+	}
+
+	/**
+	 * @return the number of reads served with an expired value
+	 */
+	public long getStaleHits() {
+		return this.staleHits;
+	}
+
+	/**
+	 * @return the number of reads that had to read the observation
+	 */
+	public long getMisses() {
+		return this.misses;
+	}
+
+	/**
+	 * @return the number of background reads of the observation
+	 */
+	public long getRefreshes() {
+		return this.refreshes;
+	}
+
+	@Override
+	public String toString() {
+		return "CacheStatistics: [hits=" + this.hits + ", staleHits="
+				+ this.staleHits + ", misses=" + this.misses + ", refreshes="
+				+ this.refreshes + "]";
+	}
+}
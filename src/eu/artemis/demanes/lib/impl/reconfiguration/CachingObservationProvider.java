@@ -0,0 +1,57 @@
+/**
+ * File CachingObservationProvider.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.reconfiguration;
+
+import eu.artemis.demanes.datatypes.ANES_URN;
+import eu.artemis.demanes.reconfiguration.ObservationProvider;
+
+/**
+ * CachingObservationProvider
+ * 
+ * An ObservationProvider that can cache the values of its observations, so
+ * that an expensive observation which is read by many parties is only read
+ * at the rate that is actually needed.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public interface CachingObservationProvider extends ObservationProvider {
+
+	/**
+	 * Set the cache policy of an observation
+	 * 
+	 * @param id
+	 *            the identifier of the observation
+	 * @param policy
+	 *            the policy, or null to stop caching the observation
+	 */
+	public void setCachePolicy(ANES_URN id, CachePolicy policy);
+
+	/**
+	 * Get the counters of the cache of an observation
+	 * 
+	 * @param id
+	 *            the identifier of the observation
+	 * @return the counters, or null if the observation is not cached
+	 */
+	public CacheStatistics getCacheStatistics(ANES_URN id);
+}
@@ -0,0 +1,78 @@
+/**
+ * File InvocationMetrics.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.reconfiguration;
+
+import eu.artemis.demanes.datatypes.ANES_URN;
+
+/**
+ * InvocationMetrics
+ * 
+ * The names of the metrics the ORA mediator keeps of every observation and
+ * action. The metrics of a URN are an observation themselves, with the URN
+ * urn:dmns-metrics:&lt;urn&gt;. Its value is an ANES_BUNDLE with the number
+ * of calls and errors, and the median, 99th percentile and maximum duration
+ * of the calls in nanoseconds. The percentiles are accurate to 12.5%. The
+ * metrics are dropped when the last provider of the URN is unregistered.
+ * 
+ * No other observations may use the urn:dmns-metrics namespace.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public final class InvocationMetrics {
+
+	/**
+	 * The namespace of the metrics observations
+	 */
+	public static final String NAMESPACE = "dmns-metrics";
+
+	public static final String CALLS = "calls";
+
+	public static final String ERRORS = "errors";
+
+	public static final String P50 = "p50";
+
+	public static final String P99 = "p99";
+
+	public static final String MAX = "max";
+
+	private static final String PREFIX = "urn:" + NAMESPACE + ":";
+
+	private InvocationMetrics() {
+	}
+
+	/**
+	 * @param id
+	 * @return the URN of the metrics of an observation or action
+	 */
+	public static ANES_URN metricsOf(ANES_URN id) {
+		return new ANES_URN(NAMESPACE, id.toString());
+	}
+
+	/**
+	 * @param id
+	 * @return true if the URN is in the namespace of the metrics
+	 */
+	public static boolean isMetrics(ANES_URN id) {
+		return id != null && id.toString().startsWith(PREFIX);
+	}
+}
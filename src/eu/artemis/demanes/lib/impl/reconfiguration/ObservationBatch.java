@@ -0,0 +1,110 @@
+/**
+ * File ObservationBatch.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.reconfiguration;
+
+import java.util.Collections;
+import java.util.Map;
+
+import eu.artemis.demanes.datatypes.ANES_URN;
+import eu.artemis.demanes.exceptions.InexistentObservationID;
+import eu.artemis.demanes.exceptions.ObservationInvocationException;
+
+/**
+ * ObservationBatch
+ * 
+ * The result of a {@link BatchObservationProvider#getValues(java.util.Set)}
+ * call. Every requested observation is either in the values or in the
+ * errors of the batch.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public final class ObservationBatch {
+
+	private final Map<ANES_URN, Object> values;
+
+	private final Map<ANES_URN, Exception> errors;
+
+	/**
+	 * @param values
+	 *            the values that were read
+	 * @param errors
+	 *            the errors of the observations that could not be read,
+	 *            either {@link InexistentObservationID} or
+	 *            {@link ObservationInvocationException}
+	 */
+	public ObservationBatch(Map<ANES_URN, Object> values,
+			Map<ANES_URN, Exception> errors) {
+		this.values = Collections.unmodifiableMap(values);
+		this.errors = Collections.unmodifiableMap(errors);
+	}
+
+	/**
+	 * @return the values that were read, by identifier
+	 */
+	public Map<ANES_URN, Object> getValues() {
+		return this.values;
+	}
+
+	/**
+	 * @return the errors of the observations that could not be read, by
+	 *         identifier
+	 */
+	public Map<ANES_URN, Exception> getErrors() {
+		return this.errors;
+	}
+
+	/**
+	 * @return true if all observations were read
+	 */
+	public boolean isComplete() {
+		return this.errors.isEmpty();
+	}
+
+	/**
+	 * Get the value of one observation, as getValue on the provider would
+	 * 
+	 * @param id
+	 * @return the value of the observation
+	 * @throws InexistentObservationID
+	 *             if the observation does not exist, or was not requested
+	 * @throws ObservationInvocationException
+	 *             if the observation failed or did not finish in time
+	 */
+	public Object getValue(ANES_URN id) throws InexistentObservationID,
+			ObservationInvocationException {
+		if (this.values.containsKey(id))
+			return this.values.get(id);
+
+		Exception error = this.errors.get(id);
+		if (error instanceof ObservationInvocationException)
+			throw (ObservationInvocationException) error;
+
+		throw new InexistentObservationID(id);
+	}
+
+	@Override
+	public String toString() {
+		return "ObservationBatch: [values=" + this.values + ", errors="
+				+ this.errors.keySet() + "]";
+	}
+}
@@ -0,0 +1,67 @@
+/**
+ * File ObservationHistory.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.reconfiguration;
+
+import eu.artemis.demanes.datatypes.ANES_URN;
+
+/**
+ * ObservationHistory
+ * 
+ * Keeps the recent values of the numeric observations, every time they are
+ * read from their observer (values served from a cache are not repeated), so
+ * that reasoners can follow trends without reading the observations again. Only a fixed number of values is kept per observation; the oldest
+ * values are overwritten.
+ * 
+ * The values are copied into arrays of the caller, which can be reused, so
+ * that reading the history allocates nothing.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public interface ObservationHistory {
+
+	/**
+	 * Copy the values of an observation that were read between two times,
+	 * from the oldest to the newest. If more values were read than fit in
+	 * the arrays, the newest ones are copied.
+	 * 
+	 * @param id
+	 * @param from
+	 *            the earliest time, in milliseconds since the epoch
+	 * @param to
+	 *            the latest time, in milliseconds since the epoch
+	 * @param times
+	 *            receives the times at which the values were read
+	 * @param values
+	 *            receives the values
+	 * @return the number of values copied, at most the length of the shortest
+	 *         array
+	 */
+	public int getHistory(ANES_URN id, long from, long to, long[] times,
+			double[] values);
+
+	/**
+	 * @param id
+	 * @return the number of values kept of the observation
+	 */
+	public int getHistorySize(ANES_URN id);
+}
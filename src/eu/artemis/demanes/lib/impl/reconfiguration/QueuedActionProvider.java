@@ -0,0 +1,54 @@
+/**
+ * File QueuedActionProvider.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.reconfiguration;
+
+import eu.artemis.demanes.datatypes.ANES_BUNDLE;
+import eu.artemis.demanes.datatypes.ANES_URN;
+import eu.artemis.demanes.exceptions.ActionInvocationException;
+import eu.artemis.demanes.exceptions.InexistentActionID;
+
+/**
+ * QueuedActionProvider
+ * 
+ * Invokes actions on a worker thread instead of the calling thread. While an
+ * invocation of an action is waiting for the worker, a new invocation of the
+ * same action replaces its arguments: only the latest arguments are used.
+ * Failures of queued invocations are logged, they can not reach the caller.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public interface QueuedActionProvider {
+
+	/**
+	 * Queue an invocation of an action
+	 * 
+	 * @param id
+	 * @param arguments
+	 * @throws ActionInvocationException
+	 *             if the provider is stopped and no longer queues invocations
+	 * @throws InexistentActionID
+	 *             if the action is not available when it is queued
+	 */
+	public void invokeQueued(ANES_URN id, ANES_BUNDLE arguments)
+			throws ActionInvocationException, InexistentActionID;
+}
@@ -0,0 +1,61 @@
+/**
+ * File SnapshotObservationProvider.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.reconfiguration;
+
+import java.util.Set;
+
+import eu.artemis.demanes.datatypes.ANES_URN;
+import eu.artemis.demanes.reconfiguration.ObservationProvider;
+
+/**
+ * SnapshotObservationProvider
+ * 
+ * An ObservationProvider that gives a reasoner one consistent view of the
+ * observations during a reasoning cycle. At the start of every cycle the
+ * declared observations, and the observations the reasoner read during the
+ * previous cycle, are read together. Within the cycle every observation is
+ * read at most once: getValue returns the value from the start of the cycle,
+ * or from the first time it was read during the cycle. The reads at the start
+ * of a cycle have a deadline; an observation that misses it, or could not be
+ * started at all, is read when the reasoner asks for it.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public interface SnapshotObservationProvider extends ObservationProvider {
+
+	/**
+	 * Declare the observations to read at the start of every cycle, in
+	 * addition to the ones read during the previous cycle
+	 * 
+	 * @param ids
+	 */
+	public void declareObservations(Set<ANES_URN> ids);
+
+	/**
+	 * Get the observations read so far in the current cycle
+	 * 
+	 * @return the snapshot, or null if the calling thread is not running a
+	 *         reasoning cycle
+	 */
+	public ObservationBatch getSnapshot();
+}
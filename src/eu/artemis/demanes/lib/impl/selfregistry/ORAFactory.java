@@ -37,7 +37,9 @@ import eu.artemis.demanes.exceptions.ReconfigurationAnnotationURNException;
 import eu.artemis.demanes.impl.annotations.DEM_Action;
 import eu.artemis.demanes.impl.annotations.DEM_Argument;
 import eu.artemis.demanes.impl.annotations.DEM_Observation;
-import eu.artemis.demanes.impl.datatypes.DefaultANES_BUNDLE;
+import eu.artemis.demanes.impl.datatypes.BundleKey;
+import eu.artemis.demanes.impl.datatypes.EmptyANES_BUNDLE;
+import eu.artemis.demanes.impl.datatypes.KeyedANES_BUNDLE;
 import eu.artemis.demanes.reconfiguration.Action;
 import eu.artemis.demanes.reconfiguration.Actuator;
 import eu.artemis.demanes.reconfiguration.Observation;
@@ -207,7 +209,10 @@ public final class ORAFactory {
 		 */
 		private static final class WrappedAction implements Action {
 
-			private final String[] argumentNames;
+			/**
+			 * The argument names, resolved to key symbols once
+			 */
+			private final BundleKey[] argumentKeys;
 
 			private final ANES_URN urn;
 
@@ -233,7 +238,7 @@ public final class ORAFactory {
 				this.wrappedObject = o;
 				this.wrappedMethod = m;
 				this.urn = new ANES_URN(urn);
-				this.argumentNames = args;
+				this.argumentKeys = BundleKey.of(args);
 			}
 
 			/**
@@ -251,13 +256,18 @@ public final class ORAFactory {
 			public void invoke(ANES_BUNDLE arguments)
 					throws ActionInvocationException {
 				if (arguments == null)
-					arguments = new DefaultANES_BUNDLE();
+					arguments = EmptyANES_BUNDLE.INSTANCE;
 
-				Object[] args = new Object[this.argumentNames.length];
+				Object[] args = new Object[this.argumentKeys.length];
+				KeyedANES_BUNDLE keyed = arguments instanceof KeyedANES_BUNDLE ? (KeyedANES_BUNDLE) arguments
+						: null;
 
-				for (int i = 0; i < this.argumentNames.length; i++)
+				for (int i = 0; i < this.argumentKeys.length; i++)
 					try {
-						args[i] = arguments.get(this.argumentNames[i]);
+						if (keyed != null)
+							args[i] = keyed.get(this.argumentKeys[i]);
+						else
+							args[i] = arguments.get(this.argumentKeys[i].name());
 					} catch (NonExistentKeyException e) {
 						throw new ActionInvocationException(this.urn, e);
 					}
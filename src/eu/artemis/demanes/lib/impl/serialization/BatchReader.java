@@ -0,0 +1,61 @@
+/**
+ * File BatchReader.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.serialization;
+
+import eu.artemis.demanes.lib.exceptions.SerializationException;
+
+/**
+ * BatchReader
+ *
+ * Reads the objects written by a {@link BatchWriter} one at a time, obtained
+ * from {@link StreamingSerializer#openBatchReader(java.io.InputStream)}.
+ * Objects are only decoded when {@link #next()} is called.
+ *
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ *
+ */
+public interface BatchReader extends AutoCloseable {
+
+	/**
+	 * @return true if the batch contains another object
+	 * @throws SerializationException
+	 */
+	public boolean hasNext() throws SerializationException;
+
+	/**
+	 * Read the next object of the batch
+	 *
+	 * @return
+	 * @throws SerializationException
+	 *             if the batch is exhausted or cannot be decoded
+	 */
+	public Object next() throws SerializationException;
+
+	/**
+	 * Stop reading. The underlying stream is not closed.
+	 *
+	 * @throws SerializationException
+	 */
+	@Override
+	public void close() throws SerializationException;
+
+}
@@ -0,0 +1,69 @@
+/**
+ * File BatchWriter.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.serialization;
+
+import eu.artemis.demanes.lib.exceptions.SerializationException;
+
+/**
+ * BatchWriter
+ *
+ * Writes a sequence of objects into a single stream, obtained from
+ * {@link StreamingSerializer#openBatchWriter(java.io.OutputStream)}. Unlike
+ * repeated calls to {@link StreamingSerializer#serialize(Object)}, the stream
+ * header and class descriptors are written only once, and objects that are
+ * written more than once are written as back-references.
+ *
+ * Since shared objects are written as back-references, changes made to an
+ * object after it was written are not seen by the reader unless
+ * {@link #reset()} is called first. The sequence is terminated by
+ * {@link #close()}, which does not close the underlying stream.
+ *
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ *
+ */
+public interface BatchWriter extends AutoCloseable {
+
+	/**
+	 * Append an object to the batch
+	 *
+	 * @param obj
+	 * @throws SerializationException
+	 */
+	public void write(Object obj) throws SerializationException;
+
+	/**
+	 * Forget the objects written so far, so that they will be written in full
+	 * again. This also bounds the memory held by long running batches.
+	 *
+	 * @throws SerializationException
+	 */
+	public void reset() throws SerializationException;
+
+	/**
+	 * Terminate the batch and flush the underlying stream
+	 *
+	 * @throws SerializationException
+	 */
+	@Override
+	public void close() throws SerializationException;
+
+}
@@ -0,0 +1,311 @@
+/**
+ * File BundleClassResolver.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInput;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.log4j.Logger;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.SynchronousBundleListener;
+import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.framework.wiring.BundleRevision;
+import org.osgi.framework.wiring.BundleWire;
+import org.osgi.framework.wiring.BundleWiring;
+
+import eu.artemis.demanes.impl.datatypes.ObjectInputFactory;
+import eu.artemis.demanes.logging.LogConstants;
+import eu.artemis.demanes.logging.LogEntry;
+
+/**
+ * BundleClassResolver
+ *
+ * Resolves class names found in a serialized stream through the class loaders
+ * of the bundles in the framework, instead of through the class loader of the
+ * serializer bundle, which does not see the types defined by tasks.
+ *
+ * Package names are mapped to the class loader of the bundle providing them;
+ * first the packages wired to the serializer bundle, then the packages that
+ * are exported by any other resolved bundle. Classes in private packages of
+ * other bundles are not resolved. Every resolved class is cached, so
+ * repeated deserialization of the same types skips the lookup altogether, and
+ * so are the names that no bundle can load. The caches are invalidated
+ * whenever the wiring in the framework changes. Every invalidation starts a
+ * new generation; a lookup that started in an older generation does not
+ * publish its result, so that it can not pin the loaders of the old wiring.
+ *
+ * As an {@link ObjectInputFactory} the resolver lets bundles in the wire form
+ * of the datatypes bundle resolve their serialized values the same way.
+ *
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ *
+ */
+public final class BundleClassResolver implements SynchronousBundleListener,
+		ObjectInputFactory {
+
+	private final Logger logger = Logger.getLogger("dmns:log");
+
+	private final BundleContext context;
+
+	/**
+	 * The most names to remember as missing, a stream can name any class
+	 */
+	private static final int MAX_MISSING = 1024;
+
+	/**
+	 * The classes that can not be resolved by name, such as the primitives
+	 */
+	private static final Map<String, Class<?>> PRIMITIVES = new HashMap<String, Class<?>>();
+
+	static {
+		for (Class<?> c : new Class<?>[] { boolean.class, byte.class,
+				char.class, short.class, int.class, long.class, float.class,
+				double.class, void.class })
+			PRIMITIVES.put(c.getName(), c);
+	}
+
+	private final ConcurrentHashMap<String, Class<?>> classCache;
+
+	/**
+	 * The names that no bundle could load
+	 */
+	private final Set<String> missing;
+
+	private volatile Map<String, ClassLoader> packageLoaders;
+
+	/**
+	 * Changed by every invalidation, guarded by this
+	 */
+	private long generation;
+
+	/**
+	 * Create a resolver for the bundles visible from the given context. Call
+	 * {@link #open()} to start tracking bundle events.
+	 *
+	 * @param context
+	 *            the context of the bundle that does the deserialization
+	 */
+	public BundleClassResolver(BundleContext context) {
+		this.context = context;
+		this.classCache = new ConcurrentHashMap<String, Class<?>>();
+		this.missing = Collections
+				.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	}
+
+	/**
+	 * Start listening for bundle events to invalidate the caches
+	 */
+	public void open() {
+		this.context.addBundleListener(this);
+	}
+
+	/**
+	 * Stop listening for bundle events and drop the caches
+	 */
+	public void close() {
+		this.context.removeBundleListener(this);
+		this.invalidate();
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * org.osgi.framework.BundleListener#bundleChanged(org.osgi.framework.
+	 * BundleEvent)
+	 */
+	@Override
+	public void bundleChanged(BundleEvent event) {
+		switch (event.getType()) {
+		case BundleEvent.RESOLVED:
+		case BundleEvent.UNRESOLVED:
+		case BundleEvent.UPDATED:
+		case BundleEvent.UNINSTALLED:
+			this.invalidate();
+			break;
+		default:
+			// The wiring does not change
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * eu.artemis.demanes.impl.datatypes.ObjectInputFactory#open(java.io.InputStream
+	 * )
+	 */
+	@Override
+	public ObjectInput open(InputStream in) throws IOException {
+		return new BundleObjectInputStream(in, this);
+	}
+
+	/**
+	 * Find the class with the given binary name
+	 *
+	 * @param name
+	 *            the name of the class as found in the stream
+	 * @return the class
+	 * @throws ClassNotFoundException
+	 *             if no bundle can load the class
+	 */
+	public Class<?> resolve(String name) throws ClassNotFoundException {
+		Class<?> clazz = PRIMITIVES.get(name);
+		if (clazz != null)
+			return clazz;
+
+		clazz = this.classCache.get(name);
+		if (clazz != null)
+			return clazz;
+
+		if (this.missing.contains(name))
+			throw new ClassNotFoundException(name);
+
+		long started = this.getGeneration();
+		try {
+			clazz = this.find(name);
+		} catch (ClassNotFoundException e) {
+			synchronized (this) {
+				if (this.generation == started
+						&& this.missing.size() < MAX_MISSING)
+					this.missing.add(name);
+			}
+			throw e;
+		}
+
+		synchronized (this) {
+			if (this.generation == started)
+				this.classCache.put(name, clazz);
+		}
+		return clazz;
+	}
+
+	private Class<?> find(String name) throws ClassNotFoundException {
+		Class<?> clazz;
+		if (name.startsWith("[")) {
+			// Load the array through the loader of its element type
+			int dims = name.lastIndexOf('[') + 1;
+			if (name.charAt(dims) == 'L') {
+				Class<?> element = resolve(name.substring(dims + 1,
+						name.length() - 1));
+				clazz = Class.forName(name, false, element.getClassLoader());
+			} else {
+				// Array of primitives
+				clazz = Class.forName(name);
+			}
+		} else {
+			clazz = this.load(name);
+		}
+		return clazz;
+	}
+
+	private Class<?> load(String name) throws ClassNotFoundException {
+		int dot = name.lastIndexOf('.');
+		String pkg = dot < 0 ? "" : name.substring(0, dot);
+
+		if (pkg.startsWith("java."))
+			return Class.forName(name, false, null);
+
+		ClassLoader loader = this.getPackageLoaders().get(pkg);
+		if (loader == null)
+			// Private packages are never searched, that would activate lazy
+			// bundles and expose their internals to the stream
+			throw new ClassNotFoundException(name);
+
+		return Class.forName(name, false, loader);
+	}
+
+	private Map<String, ClassLoader> getPackageLoaders() {
+		Map<String, ClassLoader> loaders = this.packageLoaders;
+		if (loaders == null) {
+			long started = this.getGeneration();
+			loaders = this.buildPackageLoaders();
+			synchronized (this) {
+				// Only publish a map of the current wiring
+				if (this.generation == started)
+					this.packageLoaders = loaders;
+			}
+		}
+		return loaders;
+	}
+
+	private Map<String, ClassLoader> buildPackageLoaders() {
+		Map<String, ClassLoader> loaders = new HashMap<String, ClassLoader>();
+
+		// The packages imported by our own bundle take precedence
+		BundleWiring own = this.context.getBundle().adapt(BundleWiring.class);
+		if (own != null)
+			for (BundleWire wire : own
+					.getRequiredWires(BundleRevision.PACKAGE_NAMESPACE))
+				putPackage(loaders, wire.getCapability(), wire
+						.getProviderWiring().getClassLoader());
+
+		// Then all packages exported by any resolved bundle
+		for (Bundle bundle : this.context.getBundles()) {
+			BundleWiring wiring = bundle.adapt(BundleWiring.class);
+			if (wiring == null)
+				continue;
+
+			List<BundleCapability> exports = wiring
+					.getCapabilities(BundleRevision.PACKAGE_NAMESPACE);
+			if (exports != null)
+				for (BundleCapability export : exports)
+					putPackage(loaders, export, wiring.getClassLoader());
+		}
+
+		logger.trace(new LogEntry(this.getClass().getName(),
+				LogConstants.LOG_LEVEL_TRACE, "Serialization",
+				"Rebuilt class resolution map with " + loaders.size()
+						+ " packages"));
+
+		return loaders;
+	}
+
+	private static void putPackage(Map<String, ClassLoader> loaders,
+			BundleCapability capability, ClassLoader loader) {
+		Object pkg = capability.getAttributes().get(
+				BundleRevision.PACKAGE_NAMESPACE);
+		if (pkg != null && loader != null && !loaders.containsKey(pkg))
+			loaders.put(pkg.toString(), loader);
+	}
+
+	private synchronized long getGeneration() {
+		return this.generation;
+	}
+
+	private synchronized void invalidate() {
+		this.generation++;
+		this.packageLoaders = null;
+		this.classCache.clear();
+		this.missing.clear();
+	}
+
+}
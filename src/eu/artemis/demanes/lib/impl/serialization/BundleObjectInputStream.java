@@ -0,0 +1,67 @@
+/**
+ * File BundleObjectInputStream.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.serialization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+
+/**
+ * BundleObjectInputStream
+ *
+ * An ObjectInputStream that resolves the classes in the stream through a
+ * {@link BundleClassResolver}. If no resolver is given, it behaves as a plain
+ * ObjectInputStream.
+ *
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ *
+ */
+final class BundleObjectInputStream extends ObjectInputStream {
+
+	private final BundleClassResolver resolver;
+
+	BundleObjectInputStream(InputStream in, BundleClassResolver resolver)
+			throws IOException {
+		super(in);
+		this.resolver = resolver;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see java.io.ObjectInputStream#resolveClass(java.io.ObjectStreamClass)
+	 */
+	@Override
+	protected Class<?> resolveClass(ObjectStreamClass desc)
+			throws IOException, ClassNotFoundException {
+		if (this.resolver != null)
+			try {
+				return this.resolver.resolve(desc.getName());
+			} catch (ClassNotFoundException e) {
+				// Fall back to the default (e.g. for primitive types)
+			}
+
+		return super.resolveClass(desc);
+	}
+
+}
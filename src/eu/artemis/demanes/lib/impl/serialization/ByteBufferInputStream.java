@@ -0,0 +1,75 @@
+/**
+ * File ByteBufferInputStream.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.serialization;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * ByteBufferInputStream
+ *
+ * An InputStream reading the remaining bytes of a caller supplied ByteBuffer.
+ * The position of the buffer advances as bytes are read.
+ *
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ *
+ */
+final class ByteBufferInputStream extends InputStream {
+
+	private final ByteBuffer buf;
+
+	ByteBufferInputStream(ByteBuffer buf) {
+		this.buf = buf;
+	}
+
+	@Override
+	public int available() {
+		return this.buf.remaining();
+	}
+
+	@Override
+	public int read() {
+		if (!this.buf.hasRemaining())
+			return -1;
+		return this.buf.get() & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) {
+		if (len == 0)
+			return 0;
+		if (!this.buf.hasRemaining())
+			return -1;
+
+		len = Math.min(len, this.buf.remaining());
+		this.buf.get(b, off, len);
+		return len;
+	}
+
+	@Override
+	public long skip(long n) {
+		int skipped = (int) Math.max(0, Math.min(n, this.buf.remaining()));
+		this.buf.position(this.buf.position() + skipped);
+		return skipped;
+	}
+
+}
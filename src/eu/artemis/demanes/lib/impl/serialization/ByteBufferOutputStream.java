@@ -0,0 +1,54 @@
+/**
+ * File ByteBufferOutputStream.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.serialization;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * ByteBufferOutputStream
+ *
+ * An OutputStream writing into a caller supplied ByteBuffer. Writing beyond
+ * the limit of the buffer throws a BufferOverflowException.
+ *
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ *
+ */
+final class ByteBufferOutputStream extends OutputStream {
+
+	private final ByteBuffer buf;
+
+	ByteBufferOutputStream(ByteBuffer buf) {
+		this.buf = buf;
+	}
+
+	@Override
+	public void write(int b) {
+		this.buf.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) {
+		this.buf.put(b, off, len);
+	}
+
+}
@@ -0,0 +1,646 @@
+/**
+ * File CompactSerializer.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.net.URISyntaxException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import org.osgi.framework.BundleContext;
+
+import aQute.bnd.annotation.component.Activate;
+import aQute.bnd.annotation.component.Component;
+import aQute.bnd.annotation.component.Deactivate;
+import eu.artemis.demanes.datatypes.ANES_URN;
+import eu.artemis.demanes.exceptions.NonExistentKeyException;
+import eu.artemis.demanes.impl.datatypes.DefaultANES_BUNDLE;
+import eu.artemis.demanes.lib.Serializer;
+import eu.artemis.demanes.lib.exceptions.SerializationException;
+
+/**
+ * CompactSerializer
+ *
+ * A {@link Serializer} that writes every value as a one byte type tag
+ * followed by a compact payload. Integral numbers and lengths are written as
+ * (zigzag) varints, so the small primitive, String and {@link DefaultANES_BUNDLE}
+ * values that are typically exchanged for remote parameterization take only a
+ * few bytes. Values of any other type fall back to Java serialization.
+ *
+ * The service is registered with a lower service ranking than the
+ * {@link JavaIOSerializer}. To make it the preferred Serializer, configure a
+ * higher <code>service.ranking</code> for this component through the
+ * ConfigurationAdmin, or select it with the filter
+ * <code>(serializer.format=compact)</code>.
+ *
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ *
+ */
+@Component(properties = { "service.ranking:Integer=-1",
+		"serializer.format=compact" }, provide = { Serializer.class,
+		StreamingSerializer.class })
+public class CompactSerializer implements StreamingSerializer {
+
+	static final int TAG_NULL = 0x00;
+
+	static final int TAG_FALSE = 0x01;
+
+	static final int TAG_TRUE = 0x02;
+
+	static final int TAG_BYTE = 0x03;
+
+	static final int TAG_SHORT = 0x04;
+
+	static final int TAG_CHAR = 0x05;
+
+	static final int TAG_INT = 0x06;
+
+	static final int TAG_LONG = 0x07;
+
+	static final int TAG_FLOAT = 0x08;
+
+	static final int TAG_DOUBLE = 0x09;
+
+	static final int TAG_STRING = 0x0A;
+
+	static final int TAG_BYTES = 0x0B;
+
+	static final int TAG_LIST = 0x0C;
+
+	static final int TAG_MAP = 0x0D;
+
+	static final int TAG_BUNDLE = 0x0E;
+
+	static final int TAG_URN = 0x0F;
+
+	static final int TAG_JAVA = 0x10;
+
+	/**
+	 * The largest number of elements a list or map is presized for. The
+	 * element count is read from the stream, so larger collections grow as
+	 * their elements are actually read.
+	 */
+	private static final int MAX_PRESIZE = 1024;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private final ScratchBuffers buffers = new ScratchBuffers();
+
+	private volatile BundleClassResolver resolver;
+
+	/**
+	 * Resolve the classes of values that fell back to Java serialization
+	 * through the bundles in the framework.
+	 *
+	 * @param context
+	 */
+	@Activate
+	public void start(BundleContext context) {
+		BundleClassResolver r = new BundleClassResolver(context);
+		r.open();
+		this.resolver = r;
+	}
+
+	@Deactivate
+	public void stop() {
+		if (this.resolver != null) {
+			this.resolver.close();
+			this.resolver = null;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see eu.artemis.demanes.lib.Serializer#deserialize(byte[])
+	 */
+	@Override
+	public Object deserialize(byte[] b) throws SerializationException {
+		try {
+			ByteArrayInputStream bis = new ByteArrayInputStream(b);
+			Object obj = readValue(bis);
+
+			if (bis.available() > 0)
+				throw new StreamCorruptedException(bis.available()
+						+ " trailing bytes after compact value");
+
+			return obj;
+		} catch (Throwable e) {
+			throw new SerializationException(e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * eu.artemis.demanes.lib.impl.serialization.StreamingSerializer#deserialize
+	 * (java.nio.ByteBuffer)
+	 */
+	@Override
+	public Object deserialize(ByteBuffer in) throws SerializationException {
+		return this.deserialize(new ByteBufferInputStream(in));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * eu.artemis.demanes.lib.impl.serialization.StreamingSerializer#deserialize
+	 * (java.io.InputStream)
+	 */
+	@Override
+	public Object deserialize(InputStream in) throws SerializationException {
+		try {
+			return readValue(in);
+		} catch (Throwable e) {
+			throw new SerializationException(e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * eu.artemis.demanes.lib.impl.serialization.StreamingSerializer#
+	 * openBatchReader(java.io.InputStream)
+	 */
+	@Override
+	public BatchReader openBatchReader(InputStream in) {
+		return new CompactBatchReader(in);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * eu.artemis.demanes.lib.impl.serialization.StreamingSerializer#
+	 * openBatchWriter(java.io.OutputStream)
+	 */
+	@Override
+	public BatchWriter openBatchWriter(OutputStream out) {
+		return new CompactBatchWriter(out);
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see eu.artemis.demanes.lib.Serializer#serialize(java.lang.Object)
+	 */
+	@Override
+	public byte[] serialize(Object obj) throws SerializationException {
+		ScratchBuffers.Scratch s = this.buffers.acquire(obj);
+		try {
+			this.serialize(obj, s);
+			return this.buffers.toByteArray(obj, s);
+		} finally {
+			this.buffers.release(s);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * eu.artemis.demanes.lib.impl.serialization.StreamingSerializer#serialize
+	 * (java.lang.Object, java.nio.ByteBuffer)
+	 */
+	@Override
+	public void serialize(Object obj, ByteBuffer out)
+			throws SerializationException {
+		int start = out.position();
+		try {
+			this.serialize(obj, new ByteBufferOutputStream(out));
+		} catch (BufferOverflowException e) {
+			out.position(start);
+			throw new SerializationException(e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see
+	 * eu.artemis.demanes.lib.impl.serialization.StreamingSerializer#serialize
+	 * (java.lang.Object, java.io.OutputStream)
+	 */
+	@Override
+	public void serialize(Object obj, OutputStream out)
+			throws SerializationException {
+		try {
+			writeValue(out, obj);
+			out.flush();
+		} catch (IOException e) {
+			throw new SerializationException(e);
+		}
+	}
+
+	/**
+	 * Write the tag and the payload of a single value to the stream
+	 *
+	 * @param out
+	 * @param obj
+	 * @throws IOException
+	 */
+	static void writeValue(OutputStream out, Object obj) throws IOException {
+		if (obj == null) {
+			out.write(TAG_NULL);
+			return;
+		}
+
+		Class<?> clazz = obj.getClass();
+		if (clazz == Boolean.class) {
+			out.write(((Boolean) obj) ? TAG_TRUE : TAG_FALSE);
+		} else if (clazz == Byte.class) {
+			out.write(TAG_BYTE);
+			out.write((Byte) obj);
+		} else if (clazz == Short.class) {
+			out.write(TAG_SHORT);
+			writeVarLong(out, zigzag((Short) obj));
+		} else if (clazz == Character.class) {
+			out.write(TAG_CHAR);
+			writeVarLong(out, (Character) obj);
+		} else if (clazz == Integer.class) {
+			out.write(TAG_INT);
+			writeVarLong(out, zigzag((Integer) obj));
+		} else if (clazz == Long.class) {
+			out.write(TAG_LONG);
+			writeVarLong(out, zigzag((Long) obj));
+		} else if (clazz == Float.class) {
+			out.write(TAG_FLOAT);
+			writeFixed(out, Float.floatToIntBits((Float) obj), 4);
+		} else if (clazz == Double.class) {
+			out.write(TAG_DOUBLE);
+			writeFixed(out, Double.doubleToLongBits((Double) obj), 8);
+		} else if (clazz == String.class) {
+			out.write(TAG_STRING);
+			writeString(out, (String) obj);
+		} else if (clazz == byte[].class) {
+			byte[] bytes = (byte[]) obj;
+			out.write(TAG_BYTES);
+			writeVarLong(out, bytes.length);
+			out.write(bytes);
+		} else if (clazz == ANES_URN.class) {
+			out.write(TAG_URN);
+			writeString(out, obj.toString());
+		} else if (clazz == DefaultANES_BUNDLE.class) {
+			out.write(TAG_BUNDLE);
+			writeBundle(out, (DefaultANES_BUNDLE) obj);
+		} else if (clazz == ArrayList.class) {
+			List<?> list = (List<?>) obj;
+			out.write(TAG_LIST);
+			writeVarLong(out, list.size());
+			for (Object item : list)
+				writeValue(out, item);
+		} else if (clazz == HashMap.class) {
+			Map<?, ?> map = (Map<?, ?>) obj;
+			out.write(TAG_MAP);
+			writeVarLong(out, map.size());
+			for (Entry<?, ?> entry : map.entrySet()) {
+				writeValue(out, entry.getKey());
+				writeValue(out, entry.getValue());
+			}
+		} else {
+			// Unknown type, fall back to Java serialization
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			ObjectOutputStream oos = new ObjectOutputStream(bos);
+			oos.writeObject(obj);
+			oos.close();
+
+			out.write(TAG_JAVA);
+			writeVarLong(out, bos.size());
+			bos.writeTo(out);
+		}
+	}
+
+	/**
+	 * Read a single tagged value from the stream
+	 *
+	 * @param in
+	 * @return
+	 * @throws IOException
+	 * @throws ClassNotFoundException
+	 */
+	Object readValue(InputStream in) throws IOException,
+			ClassNotFoundException {
+		int tag = readByte(in);
+		switch (tag) {
+		case TAG_NULL:
+			return null;
+		case TAG_FALSE:
+			return Boolean.FALSE;
+		case TAG_TRUE:
+			return Boolean.TRUE;
+		case TAG_BYTE:
+			return Byte.valueOf((byte) readByte(in));
+		case TAG_SHORT:
+			return Short.valueOf((short) unzigzag(readVarLong(in)));
+		case TAG_CHAR:
+			return Character.valueOf((char) readVarLong(in));
+		case TAG_INT:
+			return Integer.valueOf((int) unzigzag(readVarLong(in)));
+		case TAG_LONG:
+			return Long.valueOf(unzigzag(readVarLong(in)));
+		case TAG_FLOAT:
+			return Float.valueOf(Float.intBitsToFloat((int) readFixed(in, 4)));
+		case TAG_DOUBLE:
+			return Double.valueOf(Double.longBitsToDouble(readFixed(in, 8)));
+		case TAG_STRING:
+			return readString(in);
+		case TAG_BYTES:
+			return readFully(in, readLength(in));
+		case TAG_URN:
+			try {
+				return new ANES_URN(readString(in));
+			} catch (URISyntaxException e) {
+				throw new StreamCorruptedException("Invalid URN: "
+						+ e.getMessage());
+			}
+		case TAG_BUNDLE:
+			return readBundle(in);
+		case TAG_LIST: {
+			int size = readLength(in);
+			List<Object> list = new ArrayList<Object>(Math.min(size,
+					MAX_PRESIZE));
+			for (int i = 0; i < size; i++)
+				list.add(readValue(in));
+			return list;
+		}
+		case TAG_MAP: {
+			int size = readLength(in);
+			Map<Object, Object> map = new HashMap<Object, Object>(
+					(int) (Math.min(size, MAX_PRESIZE) / 0.75f) + 1);
+			for (int i = 0; i < size; i++)
+				map.put(readValue(in), readValue(in));
+			return map;
+		}
+		case TAG_JAVA: {
+			byte[] bytes = readFully(in, readLength(in));
+			ObjectInputStream ois = new BundleObjectInputStream(
+					new ByteArrayInputStream(bytes), this.resolver);
+			Object obj = ois.readObject();
+			ois.close();
+			return obj;
+		}
+		default:
+			throw new StreamCorruptedException("Unknown type tag " + tag);
+		}
+	}
+
+	private static void writeBundle(OutputStream out, DefaultANES_BUNDLE bundle)
+			throws IOException {
+		writeVarLong(out, bundle.keySet().size());
+		for (String key : bundle.keySet()) {
+			writeString(out, key);
+			try {
+				writeValue(out, bundle.get(key));
+			} catch (NonExistentKeyException e) {
+				throw new IOException(e);
+			}
+		}
+	}
+
+	private DefaultANES_BUNDLE readBundle(InputStream in)
+			throws IOException, ClassNotFoundException {
+		DefaultANES_BUNDLE bundle = new DefaultANES_BUNDLE();
+		int size = readLength(in);
+		for (int i = 0; i < size; i++) {
+			String key = readString(in);
+			Object value = readValue(in);
+			if (value != null && !(value instanceof Serializable))
+				throw new StreamCorruptedException("Bundle value for " + key
+						+ " is not Serializable");
+			bundle.put(key, (Serializable) value);
+		}
+		return bundle;
+	}
+
+	private static void writeString(OutputStream out, String str)
+			throws IOException {
+		byte[] bytes = str.getBytes(UTF8);
+		writeVarLong(out, bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(InputStream in) throws IOException {
+		return new String(readFully(in, readLength(in)), UTF8);
+	}
+
+	/**
+	 * Write an unsigned value in groups of 7 bits, least significant group
+	 * first. The high bit of every byte indicates that more bytes follow.
+	 */
+	private static void writeVarLong(OutputStream out, long value)
+			throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.write((int) ((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	private static long readVarLong(InputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = readByte(in);
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return value;
+		}
+		throw new StreamCorruptedException("Malformed varint");
+	}
+
+	private static int readLength(InputStream in) throws IOException {
+		long length = readVarLong(in);
+		if (length < 0 || length > Integer.MAX_VALUE)
+			throw new StreamCorruptedException("Invalid length " + length);
+		return (int) length;
+	}
+
+	private static void writeFixed(OutputStream out, long value, int bytes)
+			throws IOException {
+		for (int shift = (bytes - 1) * 8; shift >= 0; shift -= 8)
+			out.write((int) (value >>> shift));
+	}
+
+	private static long readFixed(InputStream in, int bytes)
+			throws IOException {
+		long value = 0;
+		for (int i = 0; i < bytes; i++)
+			value = (value << 8) | readByte(in);
+		return value;
+	}
+
+	private static long zigzag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private static long unzigzag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	/**
+	 * Writes the values of a batch back to back, each preceded by a
+	 * continuation byte of 1. The batch ends with a 0. The compact format has
+	 * no class descriptors to share, so there is nothing to reset.
+	 */
+	private static final class CompactBatchWriter implements BatchWriter {
+
+		private final OutputStream out;
+
+		private boolean closed;
+
+		private CompactBatchWriter(OutputStream out) {
+			this.out = out;
+		}
+
+		@Override
+		public void write(Object obj) throws SerializationException {
+			if (this.closed)
+				throw new SerializationException(new IllegalStateException(
+						"Batch already closed"));
+
+			try {
+				this.out.write(1);
+				writeValue(this.out, obj);
+			} catch (IOException e) {
+				throw new SerializationException(e);
+			}
+		}
+
+		@Override
+		public void reset() {
+			// Nothing is shared between values
+		}
+
+		@Override
+		public void close() throws SerializationException {
+			if (this.closed)
+				return;
+
+			this.closed = true;
+			try {
+				this.out.write(0);
+				this.out.flush();
+			} catch (IOException e) {
+				throw new SerializationException(e);
+			}
+		}
+	}
+
+	/**
+	 * Reads the values of a batch written by a {@link CompactBatchWriter}
+	 */
+	private final class CompactBatchReader implements BatchReader {
+
+		private final InputStream in;
+
+		private boolean known;
+
+		private boolean more;
+
+		private CompactBatchReader(InputStream in) {
+			this.in = in;
+		}
+
+		@Override
+		public boolean hasNext() throws SerializationException {
+			if (!this.known) {
+				try {
+					this.more = readByte(this.in) != 0;
+				} catch (IOException e) {
+					throw new SerializationException(e);
+				}
+				this.known = true;
+			}
+			return this.more;
+		}
+
+		@Override
+		public Object next() throws SerializationException {
+			if (!this.hasNext())
+				throw new SerializationException(new NoSuchElementException());
+
+			this.known = false;
+			try {
+				return readValue(this.in);
+			} catch (Throwable e) {
+				throw new SerializationException(e);
+			}
+		}
+
+		@Override
+		public void close() {
+			this.known = true;
+			this.more = false;
+		}
+	}
+
+	private static int readByte(InputStream in) throws IOException {
+		int b = in.read();
+		if (b < 0)
+			throw new EOFException();
+		return b;
+	}
+
+	private static byte[] readFully(InputStream in, int length)
+			throws IOException {
+		if (length <= MAX_PRESIZE * 8)
+			return readChunk(in, length);
+
+		// Do not trust a large length before the bytes have arrived
+		ByteArrayOutputStream bos = new ByteArrayOutputStream(MAX_PRESIZE * 8);
+		for (int left = length; left > 0; left -= MAX_PRESIZE * 8)
+			bos.write(readChunk(in, Math.min(left, MAX_PRESIZE * 8)));
+		return bos.toByteArray();
+	}
+
+	private static byte[] readChunk(InputStream in, int length)
+			throws IOException {
+		byte[] bytes = new byte[length];
+		int read = 0;
+		while (read < length) {
+			int n = in.read(bytes, read, length - read);
+			if (n < 0)
+				throw new EOFException();
+			read += n;
+		}
+		return bytes;
+	}
+
+}
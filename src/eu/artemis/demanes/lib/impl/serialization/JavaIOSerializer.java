@@ -20,12 +20,20 @@
 package eu.artemis.demanes.lib.impl.serialization;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.NoSuchElementException;
 
+import org.osgi.framework.BundleContext;
+
+import aQute.bnd.annotation.component.Activate;
 import aQute.bnd.annotation.component.Component;
+import aQute.bnd.annotation.component.Deactivate;
 import eu.artemis.demanes.lib.Serializer;
 import eu.artemis.demanes.lib.exceptions.SerializationException;
 
@@ -37,9 +45,35 @@ import eu.artemis.demanes.lib.exceptions.SerializationException;
  * @since May 8, 2014
  * 
  */
-@Component
-public class JavaIOSerializer implements Serializer {
-	
+@Component(properties = "serializer.format=javaio", provide = {
+		Serializer.class, StreamingSerializer.class })
+public class JavaIOSerializer implements StreamingSerializer {
+
+	private final ScratchBuffers buffers = new ScratchBuffers();
+
+	private volatile BundleClassResolver resolver;
+
+	/**
+	 * Resolve the classes of deserialized objects through the bundles in the
+	 * framework, rather than through the class loader of this bundle only.
+	 * 
+	 * @param context
+	 */
+	@Activate
+	public void start(BundleContext context) {
+		BundleClassResolver r = new BundleClassResolver(context);
+		r.open();
+		this.resolver = r;
+	}
+
+	@Deactivate
+	public void stop() {
+		if (this.resolver != null) {
+			this.resolver.close();
+			this.resolver = null;
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -47,24 +81,75 @@ public class JavaIOSerializer implements Serializer {
 	 */
 	@Override
 	public Object deserialize(byte[] b) throws SerializationException {
+		return this.deserialize(new ByteArrayInputStream(b));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * eu.artemis.demanes.lib.impl.serialization.StreamingSerializer#deserialize
+	 * (java.nio.ByteBuffer)
+	 */
+	@Override
+	public Object deserialize(ByteBuffer in) throws SerializationException {
+		return this.deserialize(new ByteBufferInputStream(in));
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * eu.artemis.demanes.lib.impl.serialization.StreamingSerializer#deserialize
+	 * (java.io.InputStream)
+	 */
+	@Override
+	public Object deserialize(InputStream in) throws SerializationException {
 		try {
-			// Create an input stream based on the input bytes
-			ByteArrayInputStream bis = new ByteArrayInputStream(b);
-			ObjectInputStream ois = new ObjectInputStream(bis);
-			
-			// Get an object from the bytes
-			Object obj = ois.readObject();
-
-			// Close the streams
-			ois.close();
-			bis.close();
-
-			return obj;
+			// Get an object from the stream, leave closing it to the owner
+			ObjectInputStream ois = new BundleObjectInputStream(in,
+					this.resolver);
+			return ois.readObject();
 		} catch (Throwable e) {
 			throw new SerializationException(e);
 		}
 	}
 
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * eu.artemis.demanes.lib.impl.serialization.StreamingSerializer#
+	 * openBatchReader(java.io.InputStream)
+	 */
+	@Override
+	public BatchReader openBatchReader(InputStream in)
+			throws SerializationException {
+		try {
+			return new JavaIOBatchReader(new BundleObjectInputStream(in,
+					this.resolver));
+		} catch (IOException e) {
+			throw new SerializationException(e);
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * eu.artemis.demanes.lib.impl.serialization.StreamingSerializer#
+	 * openBatchWriter(java.io.OutputStream)
+	 */
+	@Override
+	public BatchWriter openBatchWriter(OutputStream out)
+			throws SerializationException {
+		try {
+			return new JavaIOBatchWriter(new ObjectOutputStream(out));
+		} catch (IOException e) {
+			throw new SerializationException(e);
+		}
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * 
@@ -72,24 +157,156 @@ public class JavaIOSerializer implements Serializer {
 	 */
 	@Override
 	public byte[] serialize(Object obj) throws SerializationException {
+		// Put the object in a (presized) scratch buffer
+		ScratchBuffers.Scratch s = this.buffers.acquire(obj);
 		try {
-			// Put the object in a stream
-			ByteArrayOutputStream bos = new ByteArrayOutputStream();
-			ObjectOutputStream oos;
-
-			oos = new ObjectOutputStream(bos);
+			this.serialize(obj, s);
 
 			// Get the byte representation of the object
-			oos.writeObject(obj);
-			oos.close();
+			return this.buffers.toByteArray(obj, s);
+		} finally {
+			this.buffers.release(s);
+		}
+	}
 
-			byte[] ret = bos.toByteArray();
-			bos.close();
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * eu.artemis.demanes.lib.impl.serialization.StreamingSerializer#serialize
+	 * (java.lang.Object, java.nio.ByteBuffer)
+	 */
+	@Override
+	public void serialize(Object obj, ByteBuffer out)
+			throws SerializationException {
+		int start = out.position();
+		try {
+			this.serialize(obj, new ByteBufferOutputStream(out));
+		} catch (BufferOverflowException e) {
+			out.position(start);
+			throw new SerializationException(e);
+		}
+	}
 
-			return ret;
+	/*
+	 * (non-Javadoc)
+	 * 
+	 * @see
+	 * eu.artemis.demanes.lib.impl.serialization.StreamingSerializer#serialize
+	 * (java.lang.Object, java.io.OutputStream)
+	 */
+	@Override
+	public void serialize(Object obj, OutputStream out)
+			throws SerializationException {
+		try {
+			ObjectOutputStream oos = new ObjectOutputStream(out);
+			oos.writeObject(obj);
+
+			// Flush, but leave closing the stream to the owner
+			oos.flush();
 		} catch (IOException e) {
 			throw new SerializationException(e);
 		}
 	}
 
+	/**
+	 * Writes all objects of a batch through one ObjectOutputStream. Every
+	 * object is preceded by a boolean true, the batch ends with false.
+	 */
+	private static final class JavaIOBatchWriter implements BatchWriter {
+
+		private final ObjectOutputStream oos;
+
+		private boolean closed;
+
+		private JavaIOBatchWriter(ObjectOutputStream oos) {
+			this.oos = oos;
+		}
+
+		@Override
+		public void write(Object obj) throws SerializationException {
+			if (this.closed)
+				throw new SerializationException(new IllegalStateException(
+						"Batch already closed"));
+
+			try {
+				this.oos.writeBoolean(true);
+				this.oos.writeObject(obj);
+			} catch (IOException e) {
+				throw new SerializationException(e);
+			}
+		}
+
+		@Override
+		public void reset() throws SerializationException {
+			try {
+				this.oos.reset();
+			} catch (IOException e) {
+				throw new SerializationException(e);
+			}
+		}
+
+		@Override
+		public void close() throws SerializationException {
+			if (this.closed)
+				return;
+
+			this.closed = true;
+			try {
+				this.oos.writeBoolean(false);
+				this.oos.flush();
+			} catch (IOException e) {
+				throw new SerializationException(e);
+			}
+		}
+	}
+
+	/**
+	 * Reads the objects of a batch written by a {@link JavaIOBatchWriter}
+	 */
+	private static final class JavaIOBatchReader implements BatchReader {
+
+		private final ObjectInputStream ois;
+
+		private boolean known;
+
+		private boolean more;
+
+		private JavaIOBatchReader(ObjectInputStream ois) {
+			this.ois = ois;
+		}
+
+		@Override
+		public boolean hasNext() throws SerializationException {
+			if (!this.known) {
+				try {
+					this.more = this.ois.readBoolean();
+				} catch (IOException e) {
+					throw new SerializationException(e);
+				}
+				this.known = true;
+			}
+			return this.more;
+		}
+
+		@Override
+		public Object next() throws SerializationException {
+			if (!this.hasNext())
+				throw new SerializationException(new NoSuchElementException());
+
+			this.known = false;
+			try {
+				return this.ois.readObject();
+			} catch (Throwable e) {
+				throw new SerializationException(e);
+			}
+		}
+
+		@Override
+		public void close() {
+			this.known = true;
+			this.more = false;
+		}
+	}
+
 }
@@ -0,0 +1,115 @@
+/**
+ * File StreamingSerializer.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.serialization;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import eu.artemis.demanes.lib.Serializer;
+import eu.artemis.demanes.lib.exceptions.SerializationException;
+
+/**
+ * StreamingSerializer
+ *
+ * A {@link Serializer} that can also write directly into, and read directly
+ * from, buffers and streams that are owned by the caller. This allows a
+ * payload to be written straight into an outgoing frame without the
+ * intermediate byte arrays of {@link Serializer#serialize(Object)}.
+ *
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ *
+ */
+public interface StreamingSerializer extends Serializer {
+
+	/**
+	 * Read one object from the stream. The stream is not closed.
+	 *
+	 * @param in
+	 *            the stream to read from
+	 * @return the deserialized object
+	 * @throws SerializationException
+	 */
+	public Object deserialize(InputStream in) throws SerializationException;
+
+	/**
+	 * Read one object from the remaining bytes of the buffer. On return the
+	 * position of the buffer is advanced past the bytes that were consumed.
+	 *
+	 * @param in
+	 *            the buffer (slice) to read from
+	 * @return the deserialized object
+	 * @throws SerializationException
+	 */
+	public Object deserialize(ByteBuffer in) throws SerializationException;
+
+	/**
+	 * Write an object to the stream. The stream is flushed but not closed.
+	 *
+	 * @param obj
+	 *            the object to serialize
+	 * @param out
+	 *            the stream to write to
+	 * @throws SerializationException
+	 */
+	public void serialize(Object obj, OutputStream out)
+			throws SerializationException;
+
+	/**
+	 * Write an object into the buffer, starting at its current position. On
+	 * return the position is advanced past the written bytes. If the object
+	 * does not fit, the position is left unchanged and an exception is thrown.
+	 *
+	 * @param obj
+	 *            the object to serialize
+	 * @param out
+	 *            the buffer to write to
+	 * @throws SerializationException
+	 */
+	public void serialize(Object obj, ByteBuffer out)
+			throws SerializationException;
+
+	/**
+	 * Start writing a batch of objects into the stream. The batch shares the
+	 * stream header and type information between all its objects.
+	 *
+	 * @param out
+	 *            the stream to write to
+	 * @return a writer to append the objects with
+	 * @throws SerializationException
+	 */
+	public BatchWriter openBatchWriter(OutputStream out)
+			throws SerializationException;
+
+	/**
+	 * Start reading a batch of objects that was written by a
+	 * {@link BatchWriter} of the same serializer.
+	 *
+	 * @param in
+	 *            the stream to read from
+	 * @return a reader to iterate the objects with
+	 * @throws SerializationException
+	 */
+	public BatchReader openBatchReader(InputStream in)
+			throws SerializationException;
+
+}
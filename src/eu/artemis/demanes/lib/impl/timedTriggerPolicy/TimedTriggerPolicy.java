@@ -24,7 +24,6 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
-import java.util.UUID;
 
 import org.apache.log4j.Logger;
 
@@ -34,6 +33,7 @@ import aQute.bnd.annotation.component.ConfigurationPolicy;
 import aQute.bnd.annotation.component.Deactivate;
 import aQute.bnd.annotation.component.Modified;
 import aQute.bnd.annotation.metatype.Configurable;
+import eu.artemis.demanes.lib.impl.tracing.CorrelationId;
 import eu.artemis.demanes.logging.LogConstants;
 import eu.artemis.demanes.logging.LogEntry;
 import eu.artemis.demanes.reconfiguration.TriggerPolicy;
@@ -202,21 +202,31 @@ public class TimedTriggerPolicy implements TriggerPolicy {
 		return new Thread(new Runnable() {
 			@Override
 			public void run() {
+				// The components called by the triggerable log the same id
+				boolean traced = logger.isTraceEnabled();
+				long previous = traced ? CorrelationId.begin()
+						: CorrelationId.NONE;
 				try {
-					UUID uid = UUID.randomUUID();
-					logger.trace(new LogEntry(this.getClass().getName(),
-							LogConstants.LOG_LEVEL_DEBUG, "Reconfig",
-							"Triggering Triggerable " + triggerObj + " (" + uid
-									+ ")"));
+					if (traced)
+						logger.trace(new LogEntry(this.getClass().getName(),
+								LogConstants.LOG_LEVEL_DEBUG, "Reconfig",
+								"Triggering Triggerable " + triggerObj + " ("
+										+ CorrelationId.toString(CorrelationId
+												.current()) + ")"));
 
 					triggerObj.trigger();
 
-					logger.trace(new LogEntry(this.getClass().getName(),
-							LogConstants.LOG_LEVEL_DEBUG, "Reconfig",
-							"Triggerable " + triggerObj + " finished (" + uid
-									+ ")"));
+					if (traced)
+						logger.trace(new LogEntry(this.getClass().getName(),
+								LogConstants.LOG_LEVEL_DEBUG, "Reconfig",
+								"Triggerable " + triggerObj + " finished ("
+										+ CorrelationId.toString(CorrelationId
+												.current()) + ")"));
 				} catch (Throwable e) {
 					e.printStackTrace();
+				} finally {
+					if (traced)
+						CorrelationId.end(previous);
 				}
 			}
 		});
@@ -0,0 +1,209 @@
+/**
+ * File CorrelationId.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.lib.impl.tracing;
+
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CorrelationId
+ * 
+ * Cheap identifiers to correlate the trace messages of one request. An
+ * identifier is a long made of a 16 bit node id and a 48 bit sequence number
+ * that is shared by all threads of the node, so identifiers do not repeat
+ * however many threads come and go. Each thread takes a block of sequence
+ * numbers at a time, so creating an identifier normally only increments a
+ * counter of the current thread; nothing is allocated until it is formatted.
+ * 
+ * A component that starts work, such as a trigger policy, opens a
+ * correlation on its thread with {@link #begin()}. Every component that is
+ * called on that thread until {@link #end(long)} logs the same identifier
+ * through {@link #current()}, which gives a new identifier outside of a
+ * correlation. Work that is handed to another thread takes the correlation
+ * along when it is wrapped with {@link #wrap(Callable)} or
+ * {@link #wrap(Runnable)}.
+ * 
+ * The node id is read from the system property dmns.node.id, or chosen at
+ * random.
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public final class CorrelationId {
+
+	/**
+	 * The system property with the node id
+	 */
+	public static final String NODE_PROPERTY = "dmns.node.id";
+
+	/**
+	 * The value that is never used as identifier
+	 */
+	public static final long NONE = 0L;
+
+	private static final long NODE = (long) (Integer.getInteger(NODE_PROPERTY,
+			new Random().nextInt()) & 0xFFFF) << 48;
+
+	/**
+	 * The number of sequence numbers a thread takes at a time
+	 */
+	private static final int BLOCK_SIZE = 1024;
+
+	/**
+	 * The last block of sequence numbers taken by any thread. Block 0 is never
+	 * taken, so that an identifier is never NONE.
+	 */
+	private static final AtomicLong blocks = new AtomicLong();
+
+	private static final ThreadLocal<Context> context = new ThreadLocal<Context>() {
+		@Override
+		protected Context initialValue() {
+			return new Context();
+		}
+	};
+
+	private CorrelationId() {
+	}
+
+	/**
+	 * Open a new correlation on the current thread
+	 * 
+	 * @return the correlation that was open before, to pass to
+	 *         {@link #end(long)}
+	 */
+	public static long begin() {
+		Context c = context.get();
+		long previous = c.active;
+		c.active = c.next();
+		return previous;
+	}
+
+	/**
+	 * Continue a correlation on the current thread, for instance one that was
+	 * captured with {@link #current()} on the thread that handed over the work
+	 * 
+	 * @param id
+	 *            the correlation to continue
+	 * @return the correlation that was open before, to pass to
+	 *         {@link #end(long)}
+	 */
+	public static long begin(long id) {
+		Context c = context.get();
+		long previous = c.active;
+		c.active = id;
+		return previous;
+	}
+
+	/**
+	 * Close the correlation of the current thread
+	 * 
+	 * @param previous
+	 *            the value returned by {@link #begin()}
+	 */
+	public static void end(long previous) {
+		context.get().active = previous;
+	}
+
+	/**
+	 * @return the correlation open on the current thread, or a new identifier
+	 *         if there is none
+	 */
+	public static long current() {
+		Context c = context.get();
+		return c.active != NONE ? c.active : c.next();
+	}
+
+	/**
+	 * Wrap a task, so that it runs in the correlation of the current thread
+	 * on whichever thread runs it
+	 * 
+	 * @param task
+	 * @return
+	 */
+	public static <V> Callable<V> wrap(final Callable<V> task) {
+		final long id = current();
+		return new Callable<V>() {
+			@Override
+			public V call() throws Exception {
+				long previous = begin(id);
+				try {
+					return task.call();
+				} finally {
+					end(previous);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Wrap a task, so that it runs in the correlation of the current thread
+	 * on whichever thread runs it
+	 * 
+	 * @param task
+	 * @return
+	 */
+	public static Runnable wrap(final Runnable task) {
+		final long id = current();
+		return new Runnable() {
+			@Override
+			public void run() {
+				long previous = begin(id);
+				try {
+					task.run();
+				} finally {
+					end(previous);
+				}
+			}
+		};
+	}
+
+	/**
+	 * @param id
+	 * @return the identifier as node:sequence in hexadecimal
+	 */
+	public static String toString(long id) {
+		return String.format("%04x:%012x", (id >>> 48) & 0xFFFF, id
+				& 0xFFFFFFFFFFFFL);
+	}
+
+	/**
+	 * The counters of one thread
+	 */
+	private static final class Context {
+
+		private long sequence;
+
+		private long limit;
+
+		private long active = NONE;
+
+		long next() {
+			if (this.sequence == this.limit) {
+				// It takes 2^38 blocks before the sequence runs into the node id
+				this.sequence = blocks.incrementAndGet() * BLOCK_SIZE;
+				this.limit = this.sequence + BLOCK_SIZE;
+			}
+			return NODE | this.sequence++;
+		}
+	}
+}
@@ -0,0 +1,62 @@
+/**
+ * File BenchmarkRunner.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.test.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkRunner
+ *
+ * Runs all benchmarks in this package with the GC profiler enabled, so that
+ * next to the throughput and the latency percentiles (sample mode) the
+ * allocation rate in bytes per operation (gc.alloc.rate.norm) is reported.
+ *
+ * An optional first argument is a regular expression selecting the
+ * benchmarks to run, the optional second argument is the file to which the
+ * results are written as JSON (default jmh-result.json).
+ *
+ * The benchmarks need the JMH annotation processor, which only runs on the
+ * test path. runBenchmarks.sh in the root of the project compiles and runs
+ * them.
+ *
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ *
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : BenchmarkRunner.class
+				.getPackage().getName() + ".*";
+		String result = args.length > 1 ? args[1] : "jmh-result.json";
+
+		Options opt = new OptionsBuilder().include(include)
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON).result(result).build();
+
+		new Runner(opt).run();
+	}
+}
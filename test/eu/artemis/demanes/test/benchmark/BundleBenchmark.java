@@ -0,0 +1,116 @@
+/**
+ * File BundleBenchmark.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.test.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.artemis.demanes.datatypes.ANES_BUNDLE;
+import eu.artemis.demanes.impl.datatypes.DefaultANES_BUNDLE;
+import eu.artemis.demanes.impl.datatypes.PersistentANES_BUNDLE;
+import eu.artemis.demanes.lib.impl.serialization.JavaIOSerializer;
+
+/**
+ * BundleBenchmark
+ *
+ * Measures the life cycle of an action argument bundle: filling it, cloning
+ * it, reading the arguments and sending it through a serializer.
+ *
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BundleBenchmark {
+
+	private JavaIOSerializer serializer;
+
+	private ANES_BUNDLE bundle;
+
+	private PersistentANES_BUNDLE persistent;
+
+	private byte[] encoded;
+
+	@Setup
+	public void setup() throws Exception {
+		this.serializer = new JavaIOSerializer();
+		this.bundle = Payloads.bundle();
+		this.persistent = new PersistentANES_BUNDLE();
+		this.persistent.put("setpoint", 21.5);
+		this.persistent.put("duration", 300);
+		this.persistent.put("mode", "eco");
+		this.persistent.put("enabled", true);
+		this.encoded = serializer.serialize(bundle);
+	}
+
+	@Benchmark
+	public ANES_BUNDLE create() {
+		return Payloads.bundle();
+	}
+
+	@Benchmark
+	public ANES_BUNDLE cloneAndModify() {
+		ANES_BUNDLE clone = bundle.clone();
+		clone.put("setpoint", 19.0);
+		return clone;
+	}
+
+	@Benchmark
+	public ANES_BUNDLE persistentWith() {
+		return persistent.with("setpoint", 19.0);
+	}
+
+	@Benchmark
+	public double getArguments() throws Exception {
+		return bundle.get("setpoint", Double.class)
+				+ bundle.get("duration", Integer.class);
+	}
+
+	@Benchmark
+	public byte[] serialize() throws Exception {
+		return serializer.serialize(bundle);
+	}
+
+	@Benchmark
+	public Object roundTrip() throws Exception {
+		return serializer.deserialize(serializer.serialize(bundle));
+	}
+
+	@Benchmark
+	public Object deserialize() throws Exception {
+		return (DefaultANES_BUNDLE) serializer.deserialize(encoded);
+	}
+}
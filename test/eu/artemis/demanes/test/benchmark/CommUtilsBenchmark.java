@@ -0,0 +1,95 @@
+/**
+ * File CommUtilsBenchmark.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.test.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.artemis.demanes.datatypes.ANES_URN;
+import eu.artemis.demanes.lib.impl.communication.CommUtils;
+
+/**
+ * CommUtilsBenchmark
+ *
+ * Measures the encodings of the communication layer. Note that CommUtils
+ * prefixes values with a single length byte, so the blob payload is not
+ * applicable here.
+ *
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommUtilsBenchmark {
+
+	@Param({ Payloads.INT, Payloads.DOUBLE, Payloads.STRING })
+	public String payload;
+
+	private Object value;
+
+	private Class<?> clazz;
+
+	private ByteBuffer encoded;
+
+	private Map<ANES_URN, Object> urnMap;
+
+	@Setup
+	public void setup() throws Exception {
+		this.value = Payloads.create(payload);
+		this.clazz = value.getClass();
+		this.encoded = ByteBuffer.wrap(CommUtils.serialize(value));
+		this.urnMap = Payloads.asMap(Payloads.create(Payloads.URN_MAP));
+	}
+
+	@Benchmark
+	public byte[] serialize() throws Exception {
+		return CommUtils.serialize(value);
+	}
+
+	@Benchmark
+	public Object readObject() throws Exception {
+		encoded.rewind();
+		return CommUtils.readObject(encoded, clazz);
+	}
+
+	@Benchmark
+	public String asJSON() {
+		return CommUtils.asJSON(urnMap);
+	}
+}
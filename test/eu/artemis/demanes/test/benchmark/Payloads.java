@@ -0,0 +1,131 @@
+/**
+ * File Payloads.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.test.benchmark;
+
+import java.net.URISyntaxException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import eu.artemis.demanes.datatypes.ANES_URN;
+import eu.artemis.demanes.impl.datatypes.DefaultANES_BUNDLE;
+
+/**
+ * Payloads
+ *
+ * Generates the payload mixes used throughout the benchmarks. All payloads
+ * are generated from a fixed seed so that consecutive runs are comparable.
+ *
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ *
+ */
+final class Payloads {
+
+	static final String INT = "int";
+
+	static final String DOUBLE = "double";
+
+	static final String STRING = "string";
+
+	static final String URN_MAP = "urnMap";
+
+	static final String BUNDLE = "bundle";
+
+	static final String BLOB = "blob";
+
+	private Payloads() {
+	}
+
+	/**
+	 * Create a payload of the given kind
+	 *
+	 * @param kind
+	 *            one of the kind constants of this class
+	 * @return
+	 * @throws URISyntaxException
+	 */
+	static Object create(String kind) throws URISyntaxException {
+		if (INT.equals(kind))
+			return Integer.valueOf(1234);
+		else if (DOUBLE.equals(kind))
+			return Double.valueOf(21.5);
+		else if (STRING.equals(kind))
+			return "urn:demanes:sensor:temperature:livingroom";
+		else if (URN_MAP.equals(kind))
+			return urnMap(16);
+		else if (BUNDLE.equals(kind))
+			return bundle();
+		else if (BLOB.equals(kind))
+			return blob(1024);
+		else
+			throw new IllegalArgumentException("Unknown payload " + kind);
+	}
+
+	/**
+	 * A map of observation URNs to mixed primitive values, as exchanged when
+	 * listing parameters remotely
+	 */
+	static HashMap<ANES_URN, Object> urnMap(int size)
+			throws URISyntaxException {
+		Random random = new Random(size);
+		HashMap<ANES_URN, Object> map = new HashMap<ANES_URN, Object>();
+		for (int i = 0; i < size; i++) {
+			ANES_URN urn = new ANES_URN("urn:demanes:node" + (i % 4)
+					+ ":parameter" + i);
+			switch (i % 3) {
+			case 0:
+				map.put(urn, random.nextInt(1000));
+				break;
+			case 1:
+				map.put(urn, random.nextDouble());
+				break;
+			default:
+				map.put(urn, "value" + i);
+			}
+		}
+		return map;
+	}
+
+	/**
+	 * A bundle as typically passed as the arguments of an Action
+	 */
+	static DefaultANES_BUNDLE bundle() {
+		DefaultANES_BUNDLE bundle = new DefaultANES_BUNDLE();
+		bundle.put("setpoint", 21.5);
+		bundle.put("duration", 300);
+		bundle.put("mode", "eco");
+		bundle.put("enabled", true);
+		return bundle;
+	}
+
+	static byte[] blob(int size) {
+		byte[] blob = new byte[size];
+		new Random(size).nextBytes(blob);
+		return blob;
+	}
+
+	static Map<ANES_URN, Object> asMap(Object o) {
+		@SuppressWarnings("unchecked")
+		Map<ANES_URN, Object> map = (Map<ANES_URN, Object>) o;
+		return map;
+	}
+}
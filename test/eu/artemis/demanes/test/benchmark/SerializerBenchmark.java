@@ -0,0 +1,105 @@
+/**
+ * File SerializerBenchmark.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.test.benchmark;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.artemis.demanes.lib.impl.serialization.CompactSerializer;
+import eu.artemis.demanes.lib.impl.serialization.JavaIOSerializer;
+import eu.artemis.demanes.lib.impl.serialization.StreamingSerializer;
+
+/**
+ * SerializerBenchmark
+ *
+ * Measures the Serializer implementations for each of the payload mixes in
+ * {@link Payloads}, both through the byte array and the ByteBuffer API.
+ *
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+	@Param({ "javaio", "compact" })
+	public String serializer;
+
+	@Param({ Payloads.INT, Payloads.STRING, Payloads.URN_MAP,
+			Payloads.BUNDLE, Payloads.BLOB })
+	public String payload;
+
+	private StreamingSerializer s;
+
+	private Object value;
+
+	private byte[] encoded;
+
+	private ByteBuffer frame;
+
+	@Setup
+	public void setup() throws Exception {
+		this.s = "compact".equals(serializer) ? new CompactSerializer()
+				: new JavaIOSerializer();
+		this.value = Payloads.create(payload);
+		this.encoded = s.serialize(value);
+		this.frame = ByteBuffer.allocate(64 * 1024);
+	}
+
+	@Benchmark
+	public byte[] serialize() throws Exception {
+		return s.serialize(value);
+	}
+
+	@Benchmark
+	public Object deserialize() throws Exception {
+		return s.deserialize(encoded);
+	}
+
+	@Benchmark
+	public Object roundTrip() throws Exception {
+		return s.deserialize(s.serialize(value));
+	}
+
+	@Benchmark
+	public int serializeIntoFrame() throws Exception {
+		frame.clear();
+		s.serialize(value, frame);
+		return frame.position();
+	}
+}
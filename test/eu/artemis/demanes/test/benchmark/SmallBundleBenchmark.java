@@ -0,0 +1,114 @@
+/**
+ * File SmallBundleBenchmark.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.test.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import eu.artemis.demanes.datatypes.ANES_BUNDLE;
+import eu.artemis.demanes.impl.datatypes.CompactANES_BUNDLE;
+import eu.artemis.demanes.impl.datatypes.DefaultANES_BUNDLE;
+
+/**
+ * SmallBundleBenchmark
+ *
+ * Compares the HashMap backed {@link DefaultANES_BUNDLE} with the flat array
+ * {@link CompactANES_BUNDLE} for the bundle sizes seen in practice. The
+ * footprint of a bundle is reported by the GC profiler of the
+ * {@link BenchmarkRunner} as the normalized allocation rate of
+ * {@link #create()}. Run it on the target platform (see runBenchmarks.sh)
+ * before preferring one implementation over the other.
+ *
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ *
+ */
+@State(Scope.Thread)
+@BenchmarkMode({ Mode.AverageTime })
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SmallBundleBenchmark {
+
+	@Param({ "default", "compact" })
+	public String implementation;
+
+	@Param({ "1", "4", "16" })
+	public int size;
+
+	private String[] keys;
+
+	private ANES_BUNDLE bundle;
+
+	@Setup
+	public void setup() {
+		this.keys = new String[this.size];
+		for (int i = 0; i < this.size; i++)
+			this.keys[i] = "argument" + i;
+		this.bundle = this.create();
+	}
+
+	@Benchmark
+	public ANES_BUNDLE create() {
+		ANES_BUNDLE b = "compact".equals(this.implementation) ? new CompactANES_BUNDLE()
+				: new DefaultANES_BUNDLE();
+		for (int i = 0; i < this.keys.length; i++)
+			b.put(this.keys[i], i);
+		return b;
+	}
+
+	@Benchmark
+	public int getAll() throws Exception {
+		int sum = 0;
+		for (int i = 0; i < this.keys.length; i++)
+			sum += this.bundle.get(this.keys[i], Integer.class);
+		return sum;
+	}
+
+	@Benchmark
+	public Class<?> getType() throws Exception {
+		return this.bundle.getType(this.keys[this.keys.length - 1]);
+	}
+
+	@Benchmark
+	public boolean miss() {
+		return this.bundle.containsKey("absent");
+	}
+
+	@Benchmark
+	public ANES_BUNDLE cloneAndModify() {
+		ANES_BUNDLE clone = this.bundle.clone();
+		clone.put(this.keys[0], -1);
+		return clone;
+	}
+}
@@ -21,9 +21,20 @@ package eu.artemis.demanes.test.datatypes;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
@@ -34,7 +45,18 @@ import org.junit.Test;
 import eu.artemis.demanes.datatypes.ANES_BUNDLE;
 import eu.artemis.demanes.exceptions.NonExistentKeyException;
 import eu.artemis.demanes.exceptions.TypedRequestException;
+import eu.artemis.demanes.impl.datatypes.BundleKey;
+import eu.artemis.demanes.impl.datatypes.BundlePool;
+import eu.artemis.demanes.impl.datatypes.CompactANES_BUNDLE;
+import eu.artemis.demanes.impl.datatypes.ConcurrentANES_BUNDLE;
 import eu.artemis.demanes.impl.datatypes.DefaultANES_BUNDLE;
+import eu.artemis.demanes.impl.datatypes.DirectANES_BUNDLE;
+import eu.artemis.demanes.impl.datatypes.EmptyANES_BUNDLE;
+import eu.artemis.demanes.impl.datatypes.EncodedANES_BUNDLE;
+import eu.artemis.demanes.impl.datatypes.KeyedANES_BUNDLE;
+import eu.artemis.demanes.impl.datatypes.PersistentANES_BUNDLE;
+import eu.artemis.demanes.impl.datatypes.PooledANES_BUNDLE;
+import eu.artemis.demanes.impl.datatypes.PrimitiveANES_BUNDLE;
 
 /**
  * TestANES_BUNDLE
@@ -159,9 +181,350 @@ public class TestANES_BUNDLE {
 		}
 	}
 
-	// @Test
-	// public void serializeTest() {
-	// OutputStream os =
-	// }
+	@Test
+	public void serializeTest() throws IOException, ClassNotFoundException,
+			TypedRequestException, NonExistentKeyException {
+		ArrayList<Integer> list = new ArrayList<Integer>();
+		list.add(77);
+		bundle.put("int", 5);
+		bundle.put("double", 2.5);
+		bundle.put("list", list);
+		bundle.put("null", null);
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(bos);
+		oos.writeObject(bundle);
+		oos.close();
+
+		ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(
+				bos.toByteArray()));
+		ANES_BUNDLE copy = (ANES_BUNDLE) ois.readObject();
+		ois.close();
+
+		assertEquals(testText, copy.get(key, String.class));
+		assertEquals(Integer.valueOf(5), copy.get("int", Integer.class));
+		assertEquals(Double.valueOf(2.5), copy.get("double", Double.class));
+		assertEquals(list, copy.get("list", ArrayList.class));
+		assertTrue("Null values should survive", copy.containsKey("null"));
+	}
+
+	@Test
+	public void wireFormatTest() throws IOException, TypedRequestException,
+			NonExistentKeyException {
+		bundle.put("int", 5);
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		((DefaultANES_BUNDLE) bundle).writeTo(new DataOutputStream(bos));
+		ByteBuffer buf = ByteBuffer.wrap(bos.toByteArray());
+
+		ANES_BUNDLE copy = DefaultANES_BUNDLE.readFrom(buf);
+		assertFalse("The whole buffer should be consumed", buf.hasRemaining());
+		assertEquals(testText, copy.get(key, String.class));
+		assertEquals(Integer.valueOf(5), copy.get("int", Integer.class));
+	}
+
+	@Test
+	public void encodedViewTest() throws IOException, TypedRequestException,
+			NonExistentKeyException {
+		bundle.put("int", 5);
+		bundle.put("list", new ArrayList<String>());
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		((DefaultANES_BUNDLE) bundle).writeTo(new DataOutputStream(bos));
+		bos.write(42);
+		ByteBuffer buf = ByteBuffer.wrap(bos.toByteArray());
+
+		for (boolean indexed : new boolean[] { false, true }) {
+			buf.rewind();
+			ANES_BUNDLE view = EncodedANES_BUNDLE.wrap(buf, indexed);
+			assertEquals("The buffer should be advanced past the bundle", 1,
+					buf.remaining());
+
+			assertEquals(testText, view.get(key, String.class));
+			assertEquals(Integer.valueOf(5), view.get("int", Integer.class));
+			assertEquals(Integer.class, view.getType("int"));
+			assertTrue(view.containsKey("list", ArrayList.class));
+			assertFalse(view.containsKey("foobar"));
+
+			try {
+				view.put("int", 6);
+				fail("An encoded bundle should be read-only");
+			} catch (UnsupportedOperationException e) {
+				// Expected
+			}
+
+			ANES_BUNDLE copy = view.clone();
+			copy.put("int", 6);
+			assertEquals(Integer.valueOf(6), copy.get("int", Integer.class));
+		}
+
+		// A count that the remaining bytes can not hold is rejected
+		ByteBuffer forged = ByteBuffer.allocate(8);
+		forged.putInt(Integer.MAX_VALUE).flip();
+		try {
+			EncodedANES_BUNDLE.wrap(forged, true);
+			fail("A forged entry count should be rejected");
+		} catch (StreamCorruptedException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void primitiveLanesTest() throws TypedRequestException,
+			NonExistentKeyException {
+		PrimitiveANES_BUNDLE prim = new PrimitiveANES_BUNDLE(1);
+		prim.putInt("int", 5);
+		prim.putLong("long", -7L);
+		prim.putDouble("double", 2.5);
+		prim.put("boxed", Integer.valueOf(9));
+		prim.put(key, testText);
+
+		assertEquals(5, prim.getInt("int"));
+		assertEquals(-7L, prim.getLong("long"));
+		assertEquals(2.5, prim.getDouble("double"), 0.0);
+		assertEquals(9, prim.getInt("boxed"));
+
+		// The generic contract still holds for primitive entries
+		assertEquals(Integer.valueOf(5), prim.get("int", Integer.class));
+		assertEquals(Double.class, prim.getType("double"));
+		assertTrue(prim.containsKey("long", Number.class));
+		assertFalse(prim.containsKey("long", Integer.class));
+		assertEquals(testText, prim.get(key, String.class));
+
+		try {
+			prim.getDouble("int");
+			fail("A TypedRequestException should have been thrown");
+		} catch (TypedRequestException e) {
+			// Expected
+		}
+
+		PrimitiveANES_BUNDLE copy = prim.clone();
+		copy.putInt("int", 6);
+		assertEquals(5, prim.getInt("int"));
+		assertEquals(6, copy.getInt("int"));
+		assertEquals(5, copy.size());
+	}
+
+	@Test
+	public void compactBundleTest() throws TypedRequestException,
+			NonExistentKeyException {
+		CompactANES_BUNDLE compact = new CompactANES_BUNDLE();
+		int entries = 4 * CompactANES_BUNDLE.LINEAR_LIMIT;
+
+		for (int i = 0; i < entries; i++) {
+			compact.put("key" + i, i);
+			// Check all entries while passing the linear limit
+			for (int j = 0; j <= i; j++)
+				assertEquals(Integer.valueOf(j),
+						compact.get("key" + j, Integer.class));
+		}
+
+		compact.put("key3", "replaced");
+		compact.put("null", null);
+		assertEquals(entries + 1, compact.size());
+		assertEquals(String.class, compact.getType("key3"));
+		assertTrue(compact.containsKey("null"));
+		assertFalse(compact.containsKey("null", Object.class));
+		assertFalse(compact.containsKey("foobar"));
+
+		CompactANES_BUNDLE copy = compact.clone();
+		copy.put("key0", -1);
+		assertEquals(Integer.valueOf(0), compact.get("key0", Integer.class));
+		assertEquals(Integer.valueOf(-1), copy.get("key0", Integer.class));
+	}
+
+	@Test
+	public void pooledBundleTest() throws TypedRequestException,
+			NonExistentKeyException {
+		BundlePool pool = new BundlePool(1);
+
+		PooledANES_BUNDLE first;
+		try (PooledANES_BUNDLE args = pool.acquire()) {
+			args.put("setpoint", 21.5);
+			assertEquals(Double.valueOf(21.5),
+					args.get("setpoint", Double.class));
+			first = args;
+		}
+		assertEquals(1, pool.idleCount());
+
+		// Closing twice must not put the bundle in the pool twice
+		first.close();
+		assertEquals(1, pool.idleCount());
+
+		PooledANES_BUNDLE second = pool.acquire();
+		assertTrue("The idle bundle should be reused", second == first);
+		assertFalse("A reused bundle should be empty",
+				second.containsKey("setpoint"));
+
+		PooledANES_BUNDLE third = pool.acquire();
+		assertTrue(third != second);
+		third.close();
+		second.close();
+		assertEquals("The pool should not grow beyond its limit", 1,
+				pool.idleCount());
+
+		assertFalse(EmptyANES_BUNDLE.INSTANCE.containsKey(key));
+		try {
+			EmptyANES_BUNDLE.INSTANCE.put(key, testText);
+			fail("The empty bundle should be immutable");
+		} catch (UnsupportedOperationException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void directBundleTest() throws IOException, TypedRequestException,
+			NonExistentKeyException {
+		DirectANES_BUNDLE direct = new DirectANES_BUNDLE();
+		ByteBuffer encoded;
+		try {
+			direct.put(key, testText);
+			direct.put("int", 5);
+			direct.put("list", new ArrayList<String>());
+			direct.put("int", 6);
+			// Force the buffer to grow
+			direct.put("blob", new byte[1000]);
+
+			assertEquals(4, direct.size());
+			assertEquals(Integer.valueOf(6), direct.get("int", Integer.class));
+			assertEquals(Integer.class, direct.getType("int"));
+			assertTrue(direct.containsKey("list", ArrayList.class));
+			assertEquals(testText, direct.get(key, String.class));
+
+			// The content is valid wire form without duplicate keys
+			encoded = direct.encoded();
+			ANES_BUNDLE copy = DefaultANES_BUNDLE.readFrom(encoded);
+			assertFalse(encoded.hasRemaining());
+			assertEquals(Integer.valueOf(6), copy.get("int", Integer.class));
+			assertEquals(4, EncodedANES_BUNDLE.wrap(direct.encoded()).size());
+
+			// Views do not survive a put
+			encoded = direct.encoded();
+			direct.put("int", 7);
+			assertFalse(encoded.hasRemaining());
+			encoded = direct.encoded();
+		} finally {
+			direct.close();
+		}
+		assertFalse("Views should not survive the bundle",
+				encoded.hasRemaining());
+
+		try {
+			direct.get("int");
+			fail("A closed bundle should not be usable");
+		} catch (IllegalStateException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void concurrentBundleTest() throws Exception {
+		final ConcurrentANES_BUNDLE shared = new ConcurrentANES_BUNDLE();
+		final ConcurrentANES_BUNDLE.Updater increment = new ConcurrentANES_BUNDLE.Updater() {
+			@Override
+			public Serializable update(Serializable current) {
+				return current == null ? 1 : (Integer) current + 1;
+			}
+		};
+
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = 0; i < 1000; i++)
+						shared.update("counter", increment);
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		assertEquals(Integer.valueOf(4000), shared.get("counter", Integer.class));
+
+		assertTrue(shared.putIfAbsent("null", null));
+		assertFalse(shared.putIfAbsent("null", 1));
+		assertTrue(shared.containsKey("null"));
+		assertEquals(null, shared.get("null"));
+		assertTrue(shared.replace("null", null, 2));
+		assertFalse(shared.replace("null", null, 3));
+
+		DefaultANES_BUNDLE snapshot = shared.snapshot();
+		shared.put("counter", 0);
+		assertEquals(Integer.valueOf(4000),
+				snapshot.get("counter", Integer.class));
+		assertEquals(Integer.valueOf(2), snapshot.get("null", Integer.class));
+	}
+
+	@Test
+	public void bundleKeyTest() throws TypedRequestException,
+			NonExistentKeyException {
+		BundleKey symbol = BundleKey.of(new String(key));
+		assertTrue("Keys should be interned", symbol == BundleKey.of(key));
+		assertTrue("Key names should be interned", symbol.name() == key);
+		assertEquals(key.hashCode(), symbol.hashCode());
+
+		CompactANES_BUNDLE compact = new CompactANES_BUNDLE();
+		PooledANES_BUNDLE pooled = new BundlePool().acquire();
+		for (KeyedANES_BUNDLE keyed : new KeyedANES_BUNDLE[] { compact,
+				pooled }) {
+			keyed.put(symbol, testText);
+			for (int i = 0; i < 2 * CompactANES_BUNDLE.LINEAR_LIMIT; i++) {
+				keyed.put(BundleKey.of("key" + i), i);
+				assertEquals(testText, keyed.get(symbol, String.class));
+			}
+			assertTrue(keyed.containsKey(BundleKey.of("key3")));
+			assertEquals(Integer.valueOf(3), keyed.get("key3"));
+			assertFalse(keyed.containsKey(BundleKey.of("foobar")));
+		}
+
+		// The key table does not keep unused keys alive
+		WeakReference<BundleKey> unused = new WeakReference<BundleKey>(
+				BundleKey.of("unused" + System.nanoTime()));
+		for (int i = 0; i < 50 && unused.get() != null; i++)
+			System.gc();
+		assertNull("Unused keys should be collected", unused.get());
+	}
+
+	@Test
+	public void persistentBundleTest() throws Exception {
+		PersistentANES_BUNDLE base = new PersistentANES_BUNDLE();
+		for (int i = 0; i < 1000; i++)
+			base.put("key" + i, i);
+		// Keys with the same hash code end up in a collision node
+		base.put("Aa", "first");
+		base.put("BB", "second");
+		assertEquals(1002, base.size());
+
+		PersistentANES_BUNDLE derived = base.with("key7", "changed");
+		assertEquals(Integer.valueOf(7), base.get("key7", Integer.class));
+		assertEquals("changed", derived.get("key7", String.class));
+		assertEquals(1002, derived.size());
+
+		ANES_BUNDLE clone = derived.clone();
+		clone.put("extra", true);
+		assertFalse(derived.containsKey("extra"));
+		assertTrue(clone.containsKey("extra", Boolean.class));
+
+		for (int i = 0; i < 1000; i++)
+			if (i != 7)
+				assertEquals(Integer.valueOf(i),
+						derived.get("key" + i, Integer.class));
+		assertEquals("first", derived.get("Aa", String.class));
+		assertEquals("second", derived.get("BB", String.class));
+		assertFalse(derived.containsKey("key1000"));
+
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		ObjectOutputStream oos = new ObjectOutputStream(bos);
+		oos.writeObject(derived);
+		oos.close();
+
+		PersistentANES_BUNDLE copy = (PersistentANES_BUNDLE) new ObjectInputStream(
+				new ByteArrayInputStream(bos.toByteArray())).readObject();
+		assertEquals(1002, copy.size());
+		assertEquals("changed", copy.get("key7", String.class));
+		assertEquals("second", copy.get("BB", String.class));
+	}
 
 }
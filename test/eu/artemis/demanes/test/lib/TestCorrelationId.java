@@ -0,0 +1,135 @@
+/**
+ * File TestCorrelationId.java
+ *
+ * This file is part of the demanesImplementation project 2014.
+ * 
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.test.lib;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import eu.artemis.demanes.lib.impl.tracing.CorrelationId;
+
+/**
+ * TestCorrelationId
+ * 
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ * 
+ */
+public class TestCorrelationId {
+
+	@Test
+	public void correlationTest() {
+		long first = CorrelationId.current();
+		long second = CorrelationId.current();
+		assertFalse("Outside a correlation every id is new", first == second);
+
+		long previous = CorrelationId.begin();
+		long open = CorrelationId.current();
+		assertEquals("Within a correlation the id is shared", open,
+				CorrelationId.current());
+
+		long nested = CorrelationId.begin();
+		assertEquals(open, nested);
+		assertFalse(open == CorrelationId.current());
+		CorrelationId.end(nested);
+		assertEquals(open, CorrelationId.current());
+
+		CorrelationId.end(previous);
+		assertFalse(open == CorrelationId.current());
+		assertFalse(CorrelationId.NONE == CorrelationId.current());
+	}
+
+	@Test
+	public void uniquenessTest() throws InterruptedException {
+		final Set<Long> ids = Collections.synchronizedSet(new HashSet<Long>());
+		Thread[] threads = new Thread[4];
+		for (int i = 0; i < threads.length; i++) {
+			threads[i] = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 1000; j++)
+						ids.add(CorrelationId.current());
+				}
+			});
+			threads[i].start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		assertEquals(4000, ids.size());
+		assertTrue(CorrelationId.toString(CorrelationId.current()).matches(
+				"[0-9a-f]{4}:[0-9a-f]{12}"));
+	}
+
+	@Test
+	public void shortLivedThreadsTest() throws InterruptedException {
+		// Every thread starts a block of its own, the ids never repeat
+		final Set<Long> ids = Collections.synchronizedSet(new HashSet<Long>());
+		for (int i = 0; i < 100; i++) {
+			Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					ids.add(CorrelationId.current());
+				}
+			});
+			thread.start();
+			thread.join();
+		}
+		assertEquals(100, ids.size());
+	}
+
+	@Test
+	public void wrapTest() throws Exception {
+		ExecutorService pool = Executors.newSingleThreadExecutor();
+		try {
+			long previous = CorrelationId.begin();
+			final long open = CorrelationId.current();
+			Callable<Long> task = CorrelationId.wrap(new Callable<Long>() {
+				@Override
+				public Long call() {
+					return CorrelationId.current();
+				}
+			});
+			CorrelationId.end(previous);
+
+			assertEquals("The correlation should move with the task",
+					Long.valueOf(open), pool.submit(task).get());
+			assertFalse("The pool thread should not keep it", open == pool
+					.submit(new Callable<Long>() {
+						@Override
+						public Long call() {
+							return CorrelationId.current();
+						}
+					}).get());
+		} finally {
+			pool.shutdown();
+		}
+	}
+}
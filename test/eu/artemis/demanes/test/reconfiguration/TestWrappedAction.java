@@ -20,10 +20,22 @@
 package eu.artemis.demanes.test.reconfiguration;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -34,8 +46,11 @@ import eu.artemis.demanes.exceptions.InexistentActionID;
 import eu.artemis.demanes.exceptions.ReconfigurationAnnotationException;
 import eu.artemis.demanes.impl.datatypes.DefaultANES_BUNDLE;
 import eu.artemis.demanes.impl.reconfiguration.DefaultORAMediator;
+import eu.artemis.demanes.lib.impl.reconfiguration.QueuedActionProvider;
 import eu.artemis.demanes.lib.impl.selfregistry.ORAFactory;
+import eu.artemis.demanes.reconfiguration.Action;
 import eu.artemis.demanes.reconfiguration.ActionProvider;
+import eu.artemis.demanes.reconfiguration.Actuator;
 import eu.artemis.demanes.test.ReconfigurableTestModule;
 
 /**
@@ -50,20 +65,168 @@ public class TestWrappedAction {
 
 	private ActionProvider actionProvider;
 
+	private Actuator actuator;
+
+	private DefaultORAMediator oram;
+
 	private ReconfigurableTestModule rtm;
 
 	@Before
 	public void init() {
 		this.rtm = new ReconfigurableTestModule();
-		DefaultORAMediator oram = new DefaultORAMediator();
+		this.oram = new DefaultORAMediator();
 		try {
-			oram.registerActuator(ORAFactory.createActuator(rtm));
+			this.actuator = ORAFactory.createActuator(rtm);
+			oram.registerActuator(this.actuator);
 		} catch (ReconfigurationAnnotationException e) {
 			e.printStackTrace();
 		}
 		this.actionProvider = oram;
 	}
 
+	@After
+	public void stop() {
+		this.oram.stop();
+	}
+
+	@Test
+	public void testActionSnapshot() throws URISyntaxException {
+		ANES_URN setText = new ANES_URN(ReconfigurableTestModule.SETTEXT);
+		Set<ANES_URN> actions = this.oram.getActions();
+		assertTrue("Expected the action to be available",
+				actions.contains(setText));
+
+		this.oram.unregisterActuator(this.actuator);
+		assertTrue("A snapshot should not change afterwards",
+				actions.contains(setText));
+		assertFalse("Expected the action to be removed", this.oram
+				.getActions().contains(setText));
+
+		try {
+			actions.clear();
+			fail("Expected an unmodifiable snapshot");
+		} catch (UnsupportedOperationException e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testQueuedActions() throws Exception {
+		final ANES_URN id = new ANES_URN("urn:test:setpoint");
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountDownLatch finished = new CountDownLatch(2);
+		final CountDownLatch drained = new CountDownLatch(3);
+		final List<Object> invoked = Collections
+				.synchronizedList(new ArrayList<Object>());
+
+		// An actuator that blocks its first invocation
+		this.oram.registerActuator(new Actuator() {
+			@Override
+			public Set<Action> getActions() {
+				return Collections.<Action> singleton(new Action() {
+					@Override
+					public ANES_URN getActionID() {
+						return id;
+					}
+
+					@Override
+					public void invoke(ANES_BUNDLE arguments) {
+						try {
+							started.countDown();
+							release.await();
+							invoked.add(arguments.get("value"));
+						} catch (Exception e) {
+							throw new IllegalStateException(e);
+						}
+						finished.countDown();
+						drained.countDown();
+					}
+				});
+			}
+		});
+
+		QueuedActionProvider queue = this.oram;
+		ANES_BUNDLE arguments = new DefaultANES_BUNDLE();
+		arguments.put("value", 0);
+		queue.invokeQueued(id, arguments);
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+
+		// The actuator is busy, these collapse into the latest
+		for (int i = 1; i <= 10; i++) {
+			arguments.put("value", i);
+			queue.invokeQueued(id, arguments);
+		}
+		release.countDown();
+
+		assertTrue(finished.await(5, TimeUnit.SECONDS));
+
+		// Any other invocation would have been queued before this one
+		arguments.put("value", -1);
+		queue.invokeQueued(id, arguments);
+		assertTrue(drained.await(5, TimeUnit.SECONDS));
+		assertEquals(Arrays.<Object> asList(0, 10, -1), invoked);
+
+		try {
+			queue.invokeQueued(new ANES_URN("dmns", "bestaatniet"), null);
+			fail("Expected InexistentActionID Exception");
+		} catch (InexistentActionID e) {
+			// Expected
+		}
+
+		this.oram.stop();
+		try {
+			queue.invokeQueued(id, arguments);
+			fail("Expected ActionInvocationException");
+		} catch (ActionInvocationException e) {
+			assertEquals(RejectedExecutionException.class, e.getCause()
+					.getClass());
+		}
+	}
+
+	@Test
+	public void testAsyncAction() throws Exception {
+		final ANES_URN id = new ANES_URN("urn:test:setpoint");
+		final CountDownLatch release = new CountDownLatch(1);
+		final List<Object> invoked = Collections
+				.synchronizedList(new ArrayList<Object>());
+
+		// An actuator that waits before it reads its arguments
+		this.oram.registerActuator(new Actuator() {
+			@Override
+			public Set<Action> getActions() {
+				return Collections.<Action> singleton(new Action() {
+					@Override
+					public ANES_URN getActionID() {
+						return id;
+					}
+
+					@Override
+					public void invoke(ANES_BUNDLE arguments) {
+						try {
+							release.await();
+							invoked.add(arguments.get("value"));
+						} catch (Exception e) {
+							throw new IllegalStateException(e);
+						}
+					}
+				});
+			}
+		});
+
+		ANES_BUNDLE arguments = new DefaultANES_BUNDLE();
+		arguments.put("value", 1);
+		Future<Void> result = this.oram.invokeAsync(id, arguments, 5,
+				TimeUnit.SECONDS);
+		arguments.put("value", 2);
+		release.countDown();
+
+		result.get();
+		assertEquals("The arguments should be copied when submitted",
+				Collections.<Object> singletonList(1), invoked);
+		this.oram.stop();
+	}
+
 	@Test
 	public void testProperActionInvocation() throws InexistentActionID,
 			ActionInvocationException, URISyntaxException {
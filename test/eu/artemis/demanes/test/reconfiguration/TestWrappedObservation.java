@@ -20,20 +20,49 @@
 package eu.artemis.demanes.test.reconfiguration;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import eu.artemis.demanes.datatypes.ANES_BUNDLE;
 import eu.artemis.demanes.datatypes.ANES_URN;
 import eu.artemis.demanes.exceptions.InexistentObservationID;
 import eu.artemis.demanes.exceptions.ObservationInvocationException;
 import eu.artemis.demanes.exceptions.ReconfigurationAnnotationURNException;
 import eu.artemis.demanes.impl.reconfiguration.DefaultORAMediator;
+import eu.artemis.demanes.lib.impl.reconfiguration.AsyncORAProvider;
+import eu.artemis.demanes.lib.impl.reconfiguration.BatchObservationProvider;
+import eu.artemis.demanes.lib.impl.reconfiguration.CachePolicy;
+import eu.artemis.demanes.lib.impl.reconfiguration.CacheStatistics;
+import eu.artemis.demanes.lib.impl.reconfiguration.InvocationMetrics;
+import eu.artemis.demanes.lib.impl.reconfiguration.ObservationBatch;
+import eu.artemis.demanes.lib.impl.reconfiguration.ObservationHistory;
+import eu.artemis.demanes.lib.impl.reconfiguration.SnapshotObservationProvider;
 import eu.artemis.demanes.lib.impl.selfregistry.ORAFactory;
+import eu.artemis.demanes.reconfiguration.ActionProvider;
+import eu.artemis.demanes.reconfiguration.Observation;
 import eu.artemis.demanes.reconfiguration.ObservationProvider;
+import eu.artemis.demanes.reconfiguration.Observer;
+import eu.artemis.demanes.reconfiguration.Reasoner;
+import eu.artemis.demanes.reconfiguration.TriggerPolicy;
+import eu.artemis.demanes.reconfiguration.Triggerable;
 import eu.artemis.demanes.test.ReconfigurableTestModule;
 
 /**
@@ -46,6 +75,8 @@ import eu.artemis.demanes.test.ReconfigurableTestModule;
  */
 public class TestWrappedObservation {
 
+	private static final String SLOW = "urn:test:slow";
+
 	private ObservationProvider observationProvider;
 
 	private ReconfigurableTestModule rtm;
@@ -62,6 +93,308 @@ public class TestWrappedObservation {
 		this.observationProvider = oram;
 	}
 
+	@After
+	public void stop() {
+		((DefaultORAMediator) this.observationProvider).stop();
+	}
+
+	@Test
+	public void testBatchObservation() throws URISyntaxException,
+			InexistentObservationID, ObservationInvocationException {
+		ANES_URN message = new ANES_URN(ReconfigurableTestModule.GETMESSAGE);
+		ANES_URN number = new ANES_URN(ReconfigurableTestModule.GETMESSAGENUM);
+		ANES_URN unknown = new ANES_URN("dmns", "bestaatniet");
+		ANES_URN slow = new ANES_URN(SLOW);
+		((DefaultORAMediator) this.observationProvider)
+				.registerObserver(slowObserver(slow));
+
+		Set<ANES_URN> ids = new HashSet<ANES_URN>();
+		ids.add(message);
+		ids.add(number);
+		ids.add(unknown);
+		ids.add(slow);
+
+		long start = System.nanoTime();
+		ObservationBatch batch = ((BatchObservationProvider) this.observationProvider)
+				.getValues(ids, 200, TimeUnit.MILLISECONDS);
+		assertTrue("The deadline should be honoured",
+				System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+
+		assertFalse(batch.isComplete());
+		assertEquals("Hello World!", batch.getValue(message));
+		assertEquals(0, batch.getValue(number));
+		assertEquals(InexistentObservationID.class, batch.getErrors()
+				.get(unknown).getClass());
+		assertEquals(TimeoutException.class, batch.getErrors().get(slow)
+				.getCause().getClass());
+	}
+
+	@Test
+	public void testBatchSaturation() throws Exception {
+		DefaultORAMediator oram = (DefaultORAMediator) this.observationProvider;
+
+		// More slow observations than the batch threads and queue can take
+		final Set<Observation> slow = new HashSet<Observation>();
+		for (int i = 0; i < 300; i++) {
+			final ANES_URN id = new ANES_URN(SLOW + ":" + i);
+			slow.add(new Observation() {
+				@Override
+				public ANES_URN getObservationID() {
+					return id;
+				}
+
+				@Override
+				public Object getValue() {
+					try {
+						Thread.sleep(5000);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return "late";
+				}
+			});
+		}
+		oram.registerObserver(new Observer() {
+			@Override
+			public Set<Observation> getObservations() {
+				return slow;
+			}
+		});
+
+		Set<ANES_URN> ids = new HashSet<ANES_URN>();
+		for (Observation observation : slow)
+			ids.add(observation.getObservationID());
+
+		long start = System.nanoTime();
+		ObservationBatch batch = oram.getValues(ids, 200,
+				TimeUnit.MILLISECONDS);
+		assertTrue("The caller should not read observations itself",
+				System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+		assertEquals(300, batch.getErrors().size());
+
+		int rejected = 0;
+		for (Exception e : batch.getErrors().values())
+			if (e.getCause() instanceof RejectedExecutionException)
+				rejected++;
+		assertTrue("Observations beyond the queue should be rejected",
+				rejected > 0);
+
+		// A stopped mediator does not start new threads
+		oram.stop();
+		ANES_URN message = new ANES_URN(ReconfigurableTestModule.GETMESSAGE);
+		ids.add(message);
+		batch = oram.getValues(ids, 200, TimeUnit.MILLISECONDS);
+		assertEquals(RejectedExecutionException.class, batch.getErrors()
+				.get(message).getCause().getClass());
+		try {
+			oram.getValueAsync(message, 1, TimeUnit.SECONDS).get();
+			fail("Expected the call to be rejected");
+		} catch (ExecutionException e) {
+			assertEquals(RejectedExecutionException.class, e.getCause()
+					.getClass());
+		}
+	}
+
+	@Test
+	public void testAsyncObservation() throws Exception {
+		AsyncORAProvider async = (AsyncORAProvider) this.observationProvider;
+		((DefaultORAMediator) this.observationProvider)
+				.registerObserver(slowObserver(new ANES_URN(SLOW)));
+
+		Future<Object> message = async.getValueAsync(new ANES_URN(
+				ReconfigurableTestModule.GETMESSAGE), 1, TimeUnit.SECONDS);
+		assertEquals("Hello World!", message.get());
+
+		long start = System.nanoTime();
+		Future<Object> slow = async.getValueAsync(new ANES_URN(SLOW), 100,
+				TimeUnit.MILLISECONDS);
+		try {
+			slow.get();
+			fail("Expected the deadline to pass");
+		} catch (ExecutionException e) {
+			assertEquals(ObservationInvocationException.class, e.getCause()
+					.getClass());
+			assertEquals(TimeoutException.class, e.getCause().getCause()
+					.getClass());
+		}
+		assertTrue("The caller should be released at the deadline",
+				System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+
+		Future<Object> unknown = async.getValueAsync(new ANES_URN("dmns",
+				"bestaatniet"), 1, TimeUnit.SECONDS);
+		try {
+			unknown.get();
+			fail("Expected InexistentObservationID Exception");
+		} catch (ExecutionException e) {
+			assertEquals(InexistentObservationID.class, e.getCause()
+					.getClass());
+		}
+	}
+
+	@Test
+	public void testProviderFailover() throws Exception {
+		ANES_URN id = new ANES_URN("urn:test:temperature");
+		DefaultORAMediator oram = new DefaultORAMediator();
+		Observer low = constantObserver(id, "low");
+		Observer high = constantObserver(id, "high");
+		Observer late = constantObserver(id, "late");
+
+		oram.registerObserver(low);
+		oram.registerObserver(high, 5);
+		oram.registerObserver(late);
+		assertEquals("The highest ranking should be used", "high",
+				oram.getValue(id));
+
+		oram.unregisterObserver(high);
+		assertEquals("The first registered should take over", "low",
+				oram.getValue(id));
+
+		oram.unregisterObserver(low);
+		assertEquals("late", oram.getValue(id));
+
+		oram.unregisterObserver(late);
+		try {
+			oram.getValue(id);
+			fail("Expected InexistentObservationID Exception");
+		} catch (InexistentObservationID e) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testCachedFailover() throws Exception {
+		final ANES_URN id = new ANES_URN("urn:test:temperature");
+		final CountDownLatch refreshing = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger reads = new AtomicInteger();
+		Observer old = new Observer() {
+			@Override
+			public Set<Observation> getObservations() {
+				return Collections.<Observation> singleton(new Observation() {
+					@Override
+					public ANES_URN getObservationID() {
+						return id;
+					}
+
+					@Override
+					public Object getValue() {
+						if (reads.incrementAndGet() > 1) {
+							// The background refresh outlives the provider
+							refreshing.countDown();
+							try {
+								release.await();
+							} catch (InterruptedException e) {
+								Thread.currentThread().interrupt();
+							}
+						}
+						return "old";
+					}
+				});
+			}
+		};
+
+		DefaultORAMediator oram = new DefaultORAMediator();
+		oram.registerObserver(old);
+		// Fresh for a minute, but refreshed once it is older than 1 ms
+		oram.setCachePolicy(id, CachePolicy.parse("60000,1,0"));
+		assertEquals("old", oram.getValue(id));
+		Thread.sleep(50);
+		assertEquals("old", oram.getValue(id));
+		assertTrue(refreshing.await(2, TimeUnit.SECONDS));
+
+		oram.registerObserver(constantObserver(id, "new"));
+		oram.unregisterObserver(old);
+		release.countDown();
+		for (int i = 0; i < 100; i++)
+			if (oram.getCacheStatistics(id).getRefreshes() == 0)
+				Thread.sleep(20);
+		assertEquals(1, oram.getCacheStatistics(id).getRefreshes());
+
+		assertEquals("A late value of the old provider should not be served",
+				"new", oram.getValue(id));
+		oram.stop();
+	}
+
+	@Test
+	public void testInvocationMetrics() throws Exception {
+		ANES_URN message = new ANES_URN(ReconfigurableTestModule.GETMESSAGE);
+		ANES_URN metrics = InvocationMetrics.metricsOf(message);
+		try {
+			this.observationProvider.getValue(metrics);
+			fail("Expected InexistentObservationID before the first call");
+		} catch (InexistentObservationID e) {
+			// Expected
+		}
+
+		for (int i = 0; i < 3; i++)
+			this.observationProvider.getValue(message);
+
+		assertTrue(this.observationProvider.getObservations().contains(
+				metrics));
+		ANES_BUNDLE value = (ANES_BUNDLE) this.observationProvider
+				.getValue(metrics);
+		assertEquals(3L, value.get(InvocationMetrics.CALLS));
+		assertEquals(0L, value.get(InvocationMetrics.ERRORS));
+		long p50 = value.get(InvocationMetrics.P50, Long.class);
+		long max = value.get(InvocationMetrics.MAX, Long.class);
+		assertTrue(p50 > 0 && p50 <= max);
+
+		// The metrics go with the last provider of the observation
+		ANES_URN id = new ANES_URN("urn:test:counter");
+		DefaultORAMediator oram = new DefaultORAMediator();
+		Observer counter = countingObserver(id, new AtomicInteger());
+		oram.registerObserver(counter);
+		oram.getValue(id);
+		assertTrue(oram.getObservations().contains(
+				InvocationMetrics.metricsOf(id)));
+
+		oram.unregisterObserver(counter);
+		assertFalse(oram.getObservations().contains(
+				InvocationMetrics.metricsOf(id)));
+		try {
+			oram.getValue(InvocationMetrics.metricsOf(id));
+			fail("Expected InexistentObservationID after unregistering");
+		} catch (InexistentObservationID e) {
+			// Expected
+		}
+		oram.stop();
+	}
+
+	@Test
+	public void testObservationHistory() throws Exception {
+		final ANES_URN id = new ANES_URN("urn:test:counter");
+		final AtomicInteger reads = new AtomicInteger();
+		DefaultORAMediator oram = new DefaultORAMediator();
+		oram.registerObserver(countingObserver(id, reads));
+		oram.registerObserver(ORAFactory.createObserver(this.rtm));
+
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < 100; i++)
+			oram.getValue(id);
+		long end = System.currentTimeMillis();
+
+		ObservationHistory history = oram;
+		assertEquals("Only a fixed number of values is kept", 64,
+				history.getHistorySize(id));
+
+		long[] times = new long[3];
+		double[] values = new double[3];
+		assertEquals(3, history.getHistory(id, start, end, times, values));
+		assertEquals("The newest values should be copied, oldest first", 98.0,
+				values[0], 0);
+		assertEquals(100.0, values[2], 0);
+		assertTrue(times[0] <= times[1] && times[1] <= times[2]);
+
+		assertEquals(0, history.getHistory(id, end + 1000, end + 2000, times,
+				values));
+
+		oram.getValue(new ANES_URN(ReconfigurableTestModule.GETMESSAGE));
+		assertEquals("Only numeric values are kept", 0,
+				history.getHistorySize(new ANES_URN(
+						ReconfigurableTestModule.GETMESSAGE)));
+		oram.stop();
+	}
+
 	@Test
 	public void testProperObservationInvocation()
 			throws InexistentObservationID, ObservationInvocationException,
@@ -79,6 +412,149 @@ public class TestWrappedObservation {
 		assertEquals(o2, 0);
 	}
 
+	@Test
+	public void testObservationCache() throws Exception {
+		final ANES_URN id = new ANES_URN("urn:test:counter");
+		final AtomicInteger reads = new AtomicInteger();
+		DefaultORAMediator oram = new DefaultORAMediator();
+		oram.registerObserver(countingObserver(id, reads));
+
+		oram.setCachePolicy(id, new CachePolicy(60000, 0, 0));
+		assertEquals(1, oram.getValue(id));
+		assertEquals("A fresh value should be served from the cache", 1,
+				oram.getValue(id));
+		CacheStatistics stats = oram.getCacheStatistics(id);
+		assertEquals(1, stats.getHits());
+		assertEquals(1, stats.getMisses());
+		ANES_BUNDLE metrics = (ANES_BUNDLE) oram.getValue(InvocationMetrics
+				.metricsOf(id));
+		assertEquals("Cache hits are not calls of the observer", 1L,
+				metrics.get(InvocationMetrics.CALLS));
+		assertEquals("Cache hits are not new samples", 1,
+				oram.getHistorySize(id));
+
+		// Expired after 1 ms, but served for another minute
+		oram.setCachePolicy(id, CachePolicy.parse("1,0,60000"));
+		assertEquals(2, oram.getValue(id));
+		Thread.sleep(50);
+		assertEquals("An expired value should be served while revalidating",
+				2, oram.getValue(id));
+
+		for (int i = 0; i < 100; i++)
+			if (oram.getCacheStatistics(id).getRefreshes() == 0)
+				Thread.sleep(20);
+		assertEquals(1, oram.getCacheStatistics(id).getStaleHits());
+		assertEquals(1, oram.getCacheStatistics(id).getRefreshes());
+		assertEquals(3, reads.get());
+
+		oram.setCachePolicy(id, null);
+		assertEquals(4, oram.getValue(id));
+		assertEquals(null, oram.getCacheStatistics(id));
+		oram.stop();
+	}
+
+	@Test
+	public void testObservationSnapshot() throws Exception {
+		final ANES_URN id = new ANES_URN("urn:test:counter");
+		final AtomicInteger reads = new AtomicInteger();
+		final DefaultORAMediator oram = new DefaultORAMediator();
+		oram.registerObserver(countingObserver(id, reads));
+
+		// A trigger policy that lets the test run the cycles
+		final AtomicReference<Triggerable> cycle = new AtomicReference<Triggerable>();
+		oram.setTriggeringPolicy(manualPolicy(cycle));
+
+		// A reasoner that reads the same observation twice per cycle
+		final Set<Object> seen = new HashSet<Object>();
+		oram.setReasoner(new Reasoner() {
+			@Override
+			public void trigger() {
+				try {
+					Object first = oram.getValue(id);
+					assertEquals(first, oram.getValue(id));
+					assertEquals(first, oram.getSnapshot().getValue(id));
+					seen.add(first);
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			}
+
+			@Override
+			public void setActuationProvider(ActionProvider a) {
+			}
+
+			@Override
+			public void setObservationProvider(ObservationProvider o) {
+			}
+		});
+
+		cycle.get().trigger();
+		assertEquals("The first cycle reads the observation once", 1,
+				reads.get());
+		cycle.get().trigger();
+		assertEquals("The next cycle reads it once, before the reasoner", 2,
+				reads.get());
+		assertEquals(2, seen.size());
+		assertEquals(null,
+				((SnapshotObservationProvider) oram).getSnapshot());
+		oram.stop();
+	}
+
+	@Test
+	public void testSnapshotDeadline() throws Exception {
+		final ANES_URN id = new ANES_URN("urn:test:counter");
+		final AtomicInteger reads = new AtomicInteger();
+		final DefaultORAMediator oram = new DefaultORAMediator();
+		oram.registerObserver(countingObserver(id, reads));
+
+		// More hung sensors than the batch threads and queue can take
+		Set<ANES_URN> declared = new HashSet<ANES_URN>();
+		for (int i = 0; i < 300; i++) {
+			ANES_URN slow = new ANES_URN(SLOW + ":" + i);
+			oram.registerObserver(slowObserver(slow));
+			declared.add(slow);
+		}
+		declared.add(id);
+		oram.declareObservations(declared);
+
+		final AtomicReference<Triggerable> cycle = new AtomicReference<Triggerable>();
+		oram.setTriggeringPolicy(manualPolicy(cycle));
+		final AtomicReference<Object> seen = new AtomicReference<Object>();
+		oram.setReasoner(new Reasoner() {
+			@Override
+			public void trigger() {
+				try {
+					seen.set(oram.getValue(id));
+				} catch (Exception e) {
+					seen.set(e);
+				}
+			}
+
+			@Override
+			public void setActuationProvider(ActionProvider a) {
+			}
+
+			@Override
+			public void setObservationProvider(ObservationProvider o) {
+			}
+		});
+
+		long start = System.nanoTime();
+		cycle.get().trigger();
+		assertTrue("The cycle should not wait for the hung sensors",
+				System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+		assertTrue("A prefetch that did not run should be read directly",
+				seen.get() instanceof Integer);
+
+		// The next cycle no longer waits for sensors of the previous one
+		oram.declareObservations(null);
+		start = System.nanoTime();
+		cycle.get().trigger();
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+		assertTrue(seen.get() instanceof Integer);
+		oram.stop();
+	}
+
 	@Test
 	public void testImproperObservationInvocation() {
 		try {
@@ -96,4 +572,112 @@ public class TestWrappedObservation {
 			assertEquals(InexistentObservationID.class, e.getClass());
 		}
 	}
+
+	/**
+	 * An observer that always returns the same value
+	 */
+	private static Observer constantObserver(final ANES_URN id,
+			final Object value) {
+		return new Observer() {
+			@Override
+			public Set<Observation> getObservations() {
+				return Collections.<Observation> singleton(new Observation() {
+					@Override
+					public ANES_URN getObservationID() {
+						return id;
+					}
+
+					@Override
+					public Object getValue() {
+						return value;
+					}
+				});
+			}
+		};
+	}
+
+	/**
+	 * An observer that counts the reads of its observation, and returns the
+	 * count as its value
+	 */
+	private static Observer countingObserver(final ANES_URN id,
+			final AtomicInteger reads) {
+		return new Observer() {
+			@Override
+			public Set<Observation> getObservations() {
+				return Collections.<Observation> singleton(new Observation() {
+					@Override
+					public ANES_URN getObservationID() {
+						return id;
+					}
+
+					@Override
+					public Object getValue() {
+						return reads.incrementAndGet();
+					}
+				});
+			}
+		};
+	}
+
+	/**
+	 * A trigger policy that lets the test run the cycles
+	 */
+	private static TriggerPolicy manualPolicy(
+			final AtomicReference<Triggerable> cycle) {
+		return new TriggerPolicy() {
+			@Override
+			public void registerTriggerable(Triggerable t) {
+				cycle.set(t);
+			}
+
+			@Override
+			public void unregisterTriggerable(Triggerable t) {
+				cycle.compareAndSet(t, null);
+			}
+
+			@Override
+			public void start() {
+			}
+
+			@Override
+			public void stop() {
+			}
+
+			@Override
+			public void suspend() {
+			}
+
+			@Override
+			public void resume() {
+			}
+		};
+	}
+
+	/**
+	 * An observer that takes 5 s to read its observation
+	 */
+	private static Observer slowObserver(final ANES_URN id) {
+		return new Observer() {
+			@Override
+			public Set<Observation> getObservations() {
+				return Collections.<Observation> singleton(new Observation() {
+					@Override
+					public ANES_URN getObservationID() {
+						return id;
+					}
+
+					@Override
+					public Object getValue() {
+						try {
+							Thread.sleep(5000);
+						} catch (InterruptedException e) {
+							Thread.currentThread().interrupt();
+						}
+						return "late";
+					}
+				});
+			}
+		};
+	}
 }
@@ -0,0 +1,276 @@
+/**
+ * File TestBundleClassResolver.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.test.serialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.BundleEvent;
+import org.osgi.framework.wiring.BundleCapability;
+import org.osgi.framework.wiring.BundleRevision;
+import org.osgi.framework.wiring.BundleWiring;
+
+import eu.artemis.demanes.impl.datatypes.DefaultANES_BUNDLE;
+import eu.artemis.demanes.impl.datatypes.EncodedANES_BUNDLE;
+import eu.artemis.demanes.lib.impl.serialization.BundleClassResolver;
+import eu.artemis.demanes.lib.impl.serialization.JavaIOSerializer;
+
+/**
+ * TestBundleClassResolver
+ *
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ *
+ */
+public class TestBundleClassResolver {
+
+	/**
+	 * A value type of a task bundle
+	 */
+	public static class Payload implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		public int value = 42;
+	}
+
+	/**
+	 * Defines its own copy of {@link Payload}, like a bundle that is not
+	 * visible from the class loader of the serializer
+	 */
+	private static class IsolatedLoader extends ClassLoader {
+
+		IsolatedLoader() {
+			super(TestBundleClassResolver.class.getClassLoader());
+		}
+
+		@Override
+		protected synchronized Class<?> loadClass(String name, boolean resolve)
+				throws ClassNotFoundException {
+			if (!name.equals(Payload.class.getName()))
+				return super.loadClass(name, resolve);
+
+			Class<?> clazz = this.findLoadedClass(name);
+			if (clazz != null)
+				return clazz;
+
+			try {
+				InputStream in = this.getParent().getResourceAsStream(
+						name.replace('.', '/') + ".class");
+				ByteArrayOutputStream bos = new ByteArrayOutputStream();
+				byte[] chunk = new byte[1024];
+				for (int n; (n = in.read(chunk)) > 0;)
+					bos.write(chunk, 0, n);
+				in.close();
+				return this.defineClass(name, bos.toByteArray(), 0, bos.size());
+			} catch (IOException e) {
+				throw new ClassNotFoundException(name, e);
+			}
+		}
+	}
+
+	private static BundleContext framework(final AtomicInteger loads) {
+		return framework(loads, TestBundleClassResolver.class.getClassLoader());
+	}
+
+	/**
+	 * A framework with a single bundle that exports the package of this test
+	 * through a class loader which counts the classes it is asked to load
+	 */
+	private static BundleContext framework(final AtomicInteger loads,
+			final ClassLoader loader) {
+		final ClassLoader counting = new ClassLoader(loader) {
+			@Override
+			protected Class<?> loadClass(String name, boolean resolve)
+					throws ClassNotFoundException {
+				loads.incrementAndGet();
+				return super.loadClass(name, resolve);
+			}
+		};
+
+		final BundleCapability export = (BundleCapability) Proxy
+				.newProxyInstance(BundleCapability.class.getClassLoader(),
+						new Class<?>[] { BundleCapability.class },
+						new InvocationHandler() {
+							@Override
+							public Object invoke(Object proxy, Method method,
+									Object[] args) throws Throwable {
+								if (method.getName().equals("getAttributes"))
+									return Collections.singletonMap(
+											BundleRevision.PACKAGE_NAMESPACE,
+											TestBundleClassResolver.class
+													.getPackage().getName());
+								return null;
+							}
+						});
+
+		final BundleWiring wiring = (BundleWiring) Proxy.newProxyInstance(
+				BundleWiring.class.getClassLoader(),
+				new Class<?>[] { BundleWiring.class }, new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method,
+							Object[] args) throws Throwable {
+						if (method.getName().equals("getCapabilities"))
+							return Collections.singletonList(export);
+						else if (method.getName().equals("getRequiredWires"))
+							return Collections.emptyList();
+						else if (method.getName().equals("getClassLoader"))
+							return counting;
+						return null;
+					}
+				});
+
+		final Bundle bundle = (Bundle) Proxy.newProxyInstance(
+				Bundle.class.getClassLoader(), new Class<?>[] { Bundle.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method,
+							Object[] args) throws Throwable {
+						if (method.getName().equals("loadClass"))
+							throw new AssertionError(
+									"Private packages must not be searched");
+						else if (method.getName().equals("adapt"))
+							return wiring;
+						else if (method.getName().equals("getState"))
+							return Bundle.ACTIVE;
+						return null;
+					}
+				});
+
+		return (BundleContext) Proxy.newProxyInstance(
+				BundleContext.class.getClassLoader(),
+				new Class<?>[] { BundleContext.class },
+				new InvocationHandler() {
+					@Override
+					public Object invoke(Object proxy, Method method,
+							Object[] args) throws Throwable {
+						if (method.getName().equals("getBundle"))
+							return bundle;
+						else if (method.getName().equals("getBundles"))
+							return new Bundle[] { bundle };
+						return null;
+					}
+				});
+	}
+
+	@Test
+	public void cacheTest() throws ClassNotFoundException {
+		AtomicInteger loads = new AtomicInteger();
+		BundleContext context = framework(loads);
+		BundleClassResolver resolver = new BundleClassResolver(context);
+
+		assertEquals(int.class, resolver.resolve("int"));
+		assertEquals("Primitives should not be looked up", 0, loads.get());
+
+		String name = TestBundleClassResolver.class.getName();
+		assertEquals(TestBundleClassResolver.class, resolver.resolve(name));
+		assertEquals(TestBundleClassResolver.class, resolver.resolve(name));
+		assertEquals("Resolved classes should be cached", 1, loads.get());
+
+		String missing = TestBundleClassResolver.class.getPackage().getName()
+				+ ".Missing";
+		for (int i = 0; i < 2; i++)
+			try {
+				resolver.resolve(missing);
+				fail("Expected ClassNotFoundException");
+			} catch (ClassNotFoundException e) {
+				// Expected
+			}
+		assertEquals("Missing classes should be cached", 2, loads.get());
+
+		// A bundle event may make the class available
+		resolver.bundleChanged(new BundleEvent(BundleEvent.RESOLVED, context
+				.getBundle()));
+		try {
+			resolver.resolve(missing);
+			fail("Expected ClassNotFoundException");
+		} catch (ClassNotFoundException e) {
+			// Expected
+		}
+		assertEquals(3, loads.get());
+	}
+
+	@Test
+	public void privatePackageTest() {
+		AtomicInteger loads = new AtomicInteger();
+		BundleClassResolver resolver = new BundleClassResolver(framework(loads));
+
+		// Neither wired nor exported, so no bundle is asked for it
+		try {
+			resolver.resolve("eu.artemis.demanes.internal.Gadget");
+			fail("Expected ClassNotFoundException");
+		} catch (ClassNotFoundException e) {
+			// Expected
+		}
+		assertEquals(0, loads.get());
+	}
+
+	@Test
+	public void isolatedValueTest() throws Exception {
+		ClassLoader loader = new IsolatedLoader();
+		Class<?> isolated = loader.loadClass(Payload.class.getName());
+		assertNotSame(Payload.class, isolated);
+
+		DefaultANES_BUNDLE bundle = new DefaultANES_BUNDLE();
+		bundle.put("payload", (Serializable) isolated.newInstance());
+		bundle.put("count", 3);
+
+		BundleContext context = framework(new AtomicInteger(), loader);
+		JavaIOSerializer serializer = new JavaIOSerializer();
+		serializer.start(context);
+		try {
+			DefaultANES_BUNDLE copy = (DefaultANES_BUNDLE) serializer
+					.deserialize(serializer.serialize(bundle));
+			assertEquals(isolated, copy.get("payload").getClass());
+			assertEquals(3, copy.get("count"));
+		} finally {
+			serializer.stop();
+		}
+
+		// The wire form resolves through the same resolver
+		BundleClassResolver resolver = new BundleClassResolver(context);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		bundle.writeTo(new DataOutputStream(bos));
+
+		ByteBuffer buf = ByteBuffer.wrap(bos.toByteArray());
+		assertEquals(isolated, DefaultANES_BUNDLE.readFrom(buf, resolver)
+				.get("payload").getClass());
+		buf.rewind();
+		assertEquals(isolated, EncodedANES_BUNDLE.wrap(buf, true, resolver)
+				.get("payload").getClass());
+	}
+}
@@ -0,0 +1,185 @@
+/**
+ * File TestCompactSerializer.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.test.serialization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import eu.artemis.demanes.datatypes.ANES_BUNDLE;
+import eu.artemis.demanes.datatypes.ANES_URN;
+import eu.artemis.demanes.exceptions.NonExistentKeyException;
+import eu.artemis.demanes.exceptions.TypedRequestException;
+import eu.artemis.demanes.impl.datatypes.DefaultANES_BUNDLE;
+import eu.artemis.demanes.lib.Serializer;
+import eu.artemis.demanes.lib.exceptions.SerializationException;
+import eu.artemis.demanes.lib.impl.serialization.CompactSerializer;
+import eu.artemis.demanes.lib.impl.serialization.JavaIOSerializer;
+
+/**
+ * TestCompactSerializer
+ *
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ *
+ */
+public class TestCompactSerializer {
+
+	private Serializer serializer;
+
+	@Before
+	public void init() {
+		this.serializer = new CompactSerializer();
+	}
+
+	@Test
+	public void testPrimitives() throws SerializationException {
+		Object[] values = { null, true, false, (byte) -3, (short) -300,
+				'x', 0, -1, Integer.MAX_VALUE, Integer.MIN_VALUE,
+				Long.MIN_VALUE, 42L, 3.25f, Math.PI, "", "Hello \u20AC" };
+
+		for (Object value : values)
+			assertEquals("Round trip failed for " + value, value,
+					roundTrip(value));
+
+		assertArrayEquals("Round trip failed for byte array", new byte[] {
+				1, 2, 3 }, (byte[]) roundTrip(new byte[] { 1, 2, 3 }));
+	}
+
+	@Test
+	public void testCollections() throws SerializationException,
+			URISyntaxException {
+		List<Object> list = new ArrayList<Object>();
+		list.add(1);
+		list.add("two");
+		list.add(null);
+
+		Map<ANES_URN, Object> map = new HashMap<ANES_URN, Object>();
+		map.put(new ANES_URN("urn:test:int"), 5);
+		map.put(new ANES_URN("urn:test:list"), list);
+
+		assertEquals("Round trip failed for list", list, roundTrip(list));
+		assertEquals("Round trip failed for map", map, roundTrip(map));
+	}
+
+	@Test
+	public void testOtherCollections() throws SerializationException {
+		List<Object> list = new LinkedList<Object>();
+		list.add("one");
+		list.add(2);
+
+		Map<String, Object> map = new TreeMap<String, Object>();
+		map.put("b", 2);
+		map.put("a", 1);
+
+		assertEquals("Collection type changed", LinkedList.class,
+				roundTrip(list).getClass());
+		assertEquals("Collection type changed", TreeMap.class,
+				roundTrip(map).getClass());
+		assertEquals("Round trip failed for sorted map", map, roundTrip(map));
+	}
+
+	@Test
+	public void testBundle() throws SerializationException,
+			TypedRequestException, NonExistentKeyException {
+		ANES_BUNDLE bundle = new DefaultANES_BUNDLE();
+		bundle.put("int", 7);
+		bundle.put("text", "value");
+
+		ANES_BUNDLE copy = (ANES_BUNDLE) roundTrip(bundle);
+		assertEquals(Integer.valueOf(7), copy.get("int", Integer.class));
+		assertEquals("value", copy.get("text", String.class));
+	}
+
+	@Test
+	public void testJavaFallback() throws SerializationException {
+		Date date = new Date(123456789L);
+		assertEquals("Round trip failed for fallback type", date,
+				roundTrip(date));
+	}
+
+	@Test
+	public void testSmallerThanJavaIO() throws SerializationException {
+		DefaultANES_BUNDLE bundle = new DefaultANES_BUNDLE();
+		bundle.put("setpoint", 21.5);
+		bundle.put("enabled", true);
+
+		JavaIOSerializer javaIO = new JavaIOSerializer();
+		assertTrue("Compact encoding should be smaller", serializer
+				.serialize(bundle).length < javaIO.serialize(bundle).length);
+		assertTrue("Compact encoding should be smaller",
+				serializer.serialize(5).length < javaIO.serialize(5).length);
+	}
+
+	@Test
+	public void testCorruptInput() {
+		try {
+			serializer.deserialize(new byte[] { (byte) 0x7F });
+			fail("A SerializationException should have been thrown");
+		} catch (Exception e) {
+			assertEquals("Unexpected class type returned", e.getClass(),
+					SerializationException.class);
+		}
+
+		try {
+			serializer.deserialize(new byte[] { 0x0A, 0x05, 'a' });
+			fail("A SerializationException should have been thrown");
+		} catch (Exception e) {
+			assertEquals("Unexpected class type returned", e.getClass(),
+					SerializationException.class);
+		}
+
+		try {
+			serializer.deserialize(new byte[] { 0x0B, (byte) 0xFF,
+					(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07 });
+			fail("A SerializationException should have been thrown");
+		} catch (Exception e) {
+			assertEquals("Unexpected class type returned", e.getClass(),
+					SerializationException.class);
+		}
+
+		try {
+			serializer.deserialize(new byte[] { 0x0C, (byte) 0xFF,
+					(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07 });
+			fail("A SerializationException should have been thrown");
+		} catch (Exception e) {
+			assertEquals("Unexpected class type returned", e.getClass(),
+					SerializationException.class);
+		}
+	}
+
+	private Object roundTrip(Object value) throws SerializationException {
+		return serializer.deserialize(serializer.serialize(value));
+	}
+}
@@ -0,0 +1,175 @@
+/**
+ * File TestStreamingSerializer.java
+ *
+ * This file is part of the demanesImplementation project.
+ *
+ * Copyright 2014 TNO
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package eu.artemis.demanes.test.serialization;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import eu.artemis.demanes.lib.exceptions.SerializationException;
+import eu.artemis.demanes.lib.impl.serialization.BatchReader;
+import eu.artemis.demanes.lib.impl.serialization.BatchWriter;
+import eu.artemis.demanes.lib.impl.serialization.CompactSerializer;
+import eu.artemis.demanes.lib.impl.serialization.JavaIOSerializer;
+import eu.artemis.demanes.lib.impl.serialization.StreamingSerializer;
+
+/**
+ * TestStreamingSerializer
+ *
+ * @author leeuwencjv
+ * @version 0.1
+ * @since 19 okt. 2026
+ *
+ */
+public class TestStreamingSerializer {
+
+	/**
+	 * An object that uses the serializer while being serialized itself
+	 */
+	private static final class Nested implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private transient StreamingSerializer serializer;
+
+		private byte[] inner;
+
+		private Nested(StreamingSerializer serializer) {
+			this.serializer = serializer;
+		}
+
+		private String getInner() throws SerializationException {
+			return (String) new CompactSerializer().deserialize(inner);
+		}
+
+		private void writeObject(ObjectOutputStream out) throws IOException {
+			try {
+				this.inner = new CompactSerializer().serialize("inner");
+				this.serializer.serialize("ignored");
+			} catch (SerializationException e) {
+				throw new IOException(e);
+			}
+			out.defaultWriteObject();
+		}
+	}
+
+	private final StreamingSerializer[] serializers = {
+			new JavaIOSerializer(), new CompactSerializer() };
+
+	@Test
+	public void testByteBufferRoundTrip() throws SerializationException {
+		for (StreamingSerializer s : serializers) {
+			ByteBuffer frame = ByteBuffer.allocate(512);
+			frame.put((byte) 0x42); // Some frame header
+
+			s.serialize("first", frame);
+			int end = frame.position();
+			s.serialize(Integer.valueOf(7), frame);
+			frame.flip();
+
+			assertEquals((byte) 0x42, frame.get());
+			assertEquals("Unexpected payload for " + s, "first",
+					s.deserialize(frame));
+			assertEquals("Buffer not advanced correctly by " + s, end,
+					frame.position());
+			assertEquals(Integer.valueOf(7), s.deserialize(frame));
+		}
+	}
+
+	@Test
+	public void testMatchesByteArray() throws SerializationException {
+		for (StreamingSerializer s : serializers) {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			s.serialize(3.5d, bos);
+			assertArrayEquals("Stream and array encoding differ for " + s,
+					s.serialize(3.5d), bos.toByteArray());
+			assertEquals(3.5d, s.deserialize(new ByteArrayInputStream(bos
+					.toByteArray())));
+		}
+	}
+
+	@Test
+	public void testScratchReuse() throws SerializationException {
+		byte[] blob = new byte[100 * 1024];
+		blob[blob.length - 1] = 9;
+
+		for (StreamingSerializer s : serializers) {
+			byte[] first = s.serialize("small");
+			assertArrayEquals("Large payload corrupted by " + s, blob,
+					(byte[]) s.deserialize(s.serialize(blob)));
+			assertArrayEquals("Encoding changed after reuse by " + s, first,
+					s.serialize("small"));
+			assertEquals("Nested serialization failed for " + s, "inner",
+					((Nested) s.deserialize(s.serialize(new Nested(s))))
+							.getInner());
+		}
+	}
+
+	@Test
+	public void testBatchRoundTrip() throws SerializationException {
+		Object[] values = { "first", 2, null, 4.5, "first" };
+
+		for (StreamingSerializer s : serializers) {
+			ByteArrayOutputStream bos = new ByteArrayOutputStream();
+			BatchWriter writer = s.openBatchWriter(bos);
+			for (int i = 0; i < values.length; i++) {
+				writer.write(values[i]);
+				if (i == 2)
+					writer.reset();
+			}
+			writer.close();
+
+			BatchReader reader = s.openBatchReader(new ByteArrayInputStream(
+					bos.toByteArray()));
+			for (Object value : values) {
+				assertTrue("Batch ended early for " + s, reader.hasNext());
+				assertEquals("Batch element changed by " + s, value,
+						reader.next());
+			}
+			assertFalse("Batch too long for " + s, reader.hasNext());
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testOverflowLeavesPosition() {
+		for (StreamingSerializer s : serializers) {
+			ByteBuffer frame = ByteBuffer.allocate(8);
+			frame.put((byte) 1);
+			try {
+				s.serialize("a string that will never fit", frame);
+				fail("A SerializationException should have been thrown");
+			} catch (SerializationException e) {
+				assertEquals("Position changed by " + s, 1, frame.position());
+			}
+		}
+	}
+}